@@ -0,0 +1,72 @@
+package ethan.entelect.textract.demo.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole document parsing: building a TextractDocument eagerly, lazily and over a pool, and the flat
+ * key/value extraction the services run on every completed analysis. Run with -prof gc for allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class DocumentBenchmark {
+    @Param({"1", "10", "100", "1000"})
+    int pages;
+
+    @Param({"TEXT", "FORM", "TABLE", "MIXED"})
+    SyntheticBlocks.Shape shape;
+
+    private List<GetDocumentAnalysisResponse> responses;
+    private List<Block> blocks;
+
+    @Setup
+    public void setUp() {
+        responses = SyntheticBlocks.Document(pages, shape);
+        blocks = SyntheticBlocks.Blocks(responses);
+    }
+
+    @Benchmark
+    public TextractDocument parseEager() {
+        return new TextractDocument(responses);
+    }
+
+    @Benchmark
+    public TextractDocument parseLazy() {
+        return new TextractDocument(responses, true);
+    }
+
+    @Benchmark
+    public TextractDocument parseParallel() {
+        return new TextractDocument(responses, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public Map<String, String> extractForm() {
+        return FormExtractor.extract(blocks);
+    }
+
+    @Benchmark
+    public List<TableGrid> stitchTables() {
+        return new TextractDocument(responses, true).GetTableGrids();
+    }
+}
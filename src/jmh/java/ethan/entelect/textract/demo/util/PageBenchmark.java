@@ -0,0 +1,108 @@
+package ethan.entelect.textract.demo.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-page hot paths on an already indexed document: reading order, fuzzy field search and table building.
+ * Recorded documents are measured by {@link RecordedBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageBenchmark {
+    @Param({"TEXT", "FORM", "TABLE", "MIXED"})
+    SyntheticBlocks.Shape shape;
+
+    private List<Page> pages;
+    private BlockIndex index;
+    private List<Integer> tables;
+    private List<GeometryStore> tableGeometries;
+
+    @Setup
+    public void setUp() {
+        List<GetDocumentAnalysisResponse> responses = SyntheticBlocks.Document(10, shape);
+
+        // Parse up front so the benchmarks only measure the work they name.
+        pages = new TextractDocument(responses).Pages;
+        index = new BlockIndex();
+        for (Block block : SyntheticBlocks.Blocks(responses)) index.Add(block);
+        tables = new ArrayList<>();
+        tableGeometries = new ArrayList<>();
+        for (int p = 0; p < index.GetPages().size(); p++) {
+            GeometryStore store = new GeometryStore(index, p);
+            for (Block block : index.GetPages().get(p)) {
+                if (block.blockType() != BlockType.TABLE) continue;
+                tables.add(index.GetOrdinal(block.id()));
+                tableGeometries.add(store);
+            }
+        }
+    }
+
+    @Benchmark
+    public int readingOrder() {
+        int lines = 0;
+        for (Page page : pages) lines += page.GetLinesInReadingOrder().size();
+        return lines;
+    }
+
+    @Benchmark
+    public int searchFieldsByKey(Query query) {
+        int hits = 0;
+        for (Page page : pages) hits += page.GetForm().SearchFieldsByKey(query.key).size();
+        return hits;
+    }
+
+    @Benchmark
+    public int buildTables() {
+        int rows = 0;
+        for (int t = 0; t < tables.size(); t++) {
+            rows += new Table(tables.get(t), index, tableGeometries.get(t)).Rows.size();
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public int buildTableGrids() {
+        int rows = 0;
+        for (int t = 0; t < tables.size(); t++) {
+            rows += TableGrid.From(tables.get(t), index, tableGeometries.get(t), 1).GetRowCount();
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public GeometryStore buildGeometries() {
+        GeometryStore last = null;
+        for (int p = 0; p < index.GetPages().size(); p++) last = new GeometryStore(index, p);
+        return last;
+    }
+
+    /**
+     * Exact, misspelt and initialism lookups; kept apart so only the search benchmark runs once per query.
+     */
+    @State(Scope.Benchmark)
+    public static class Query {
+        @Param({"date of birth", "acount numbr", "DOB"})
+        String key;
+    }
+}
@@ -0,0 +1,73 @@
+package ethan.entelect.textract.demo.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and reading order over real documents: every ".blocks" file under textract.bench.recorded.
+ * Excluded from the default run since it needs that directory, e.g.
+ * -Djmh.args="RecordedBenchmark -jvmArgsAppend -Dtextract.bench.recorded=/var/cache/textract".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordedBenchmark {
+    private List<List<GetDocumentAnalysisResponse>> documents;
+    private List<List<Block>> blocks;
+    private List<TextractDocument> parsed;
+
+    @Setup
+    public void setUp() throws IOException {
+        documents = SyntheticBlocks.Recorded();
+        if (documents.isEmpty()) {
+            throw new IllegalStateException("No recorded documents, set -Dtextract.bench.recorded to a result cache directory");
+        }
+        blocks = new ArrayList<>(documents.size());
+        parsed = new ArrayList<>(documents.size());
+        for (List<GetDocumentAnalysisResponse> responses : documents) {
+            blocks.add(SyntheticBlocks.Blocks(responses));
+            parsed.add(new TextractDocument(responses));
+        }
+    }
+
+    @Benchmark
+    public int parseEager() {
+        int pages = 0;
+        for (List<GetDocumentAnalysisResponse> responses : documents) pages += new TextractDocument(responses).Pages.size();
+        return pages;
+    }
+
+    @Benchmark
+    public int extractForm() {
+        int fields = 0;
+        for (List<Block> document : blocks) fields += FormExtractor.extract(document).size();
+        return fields;
+    }
+
+    @Benchmark
+    public int readingOrder() {
+        int lines = 0;
+        for (TextractDocument document : parsed) {
+            for (Page page : document.Pages) lines += page.GetLinesInReadingOrder().size();
+        }
+        return lines;
+    }
+}
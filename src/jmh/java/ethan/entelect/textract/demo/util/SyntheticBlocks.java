@@ -0,0 +1,235 @@
+package ethan.entelect.textract.demo.util;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+import software.amazon.awssdk.services.textract.model.BoundingBox;
+import software.amazon.awssdk.services.textract.model.EntityType;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
+import software.amazon.awssdk.services.textract.model.Geometry;
+import software.amazon.awssdk.services.textract.model.Point;
+import software.amazon.awssdk.services.textract.model.Relationship;
+import software.amazon.awssdk.services.textract.model.RelationshipType;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Block sets for the benchmarks, shaped like GetDocumentAnalysis output: one response per page, a PAGE block
+ * followed by its lines, words, key/value sets and table cells. Generation is seeded so every fork sees the
+ * same document. Recorded documents (the ".blocks" files the result cache writes) can be used instead by
+ * pointing textract.bench.recorded at a directory of them.
+ */
+public final class SyntheticBlocks {
+    static final String RECORDED_DIR = System.getProperty("textract.bench.recorded", "");
+
+    private static final String[] KEYS = {
+            "Date of birth", "Account number", "Policy holder", "Postal address", "Identity number",
+            "Telephone", "Email address", "Branch code", "Premium amount", "Start date",
+            "Employer", "Income tax number", "Marital status", "Next of kin", "Signature"
+    };
+    private static final String[] WORDS = {
+            "the", "statement", "balance", "payment", "interest", "period", "customer", "service", "charge",
+            "account", "transfer", "opening", "closing", "monthly", "fee", "reference", "total", "due"
+    };
+
+    public enum Shape {
+        // Two columns of running text, which is the case reading order has to untangle.
+        TEXT,
+        // A dense form, FIELDS_PER_PAGE key/value pairs to a page.
+        FORM,
+        // One TABLE_ROWS by TABLE_COLUMNS table to a page, with a header row and numeric cells.
+        TABLE,
+        MIXED
+    }
+
+    static final int LINES_PER_COLUMN = 40;
+    static final int WORDS_PER_LINE = 8;
+    static final int FIELDS_PER_PAGE = 60;
+    static final int TABLE_ROWS = 50;
+    static final int TABLE_COLUMNS = 8;
+
+    private final Random random = new Random(42);
+    private final List<Block> page = new ArrayList<>();
+    private final List<String> pageChildren = new ArrayList<>();
+    private int nextId;
+
+    private SyntheticBlocks() {
+    }
+
+    static List<GetDocumentAnalysisResponse> Document(int pages, Shape shape) {
+        SyntheticBlocks generator = new SyntheticBlocks();
+        List<GetDocumentAnalysisResponse> responses = new ArrayList<>(pages);
+        for (int p = 1; p <= pages; p++) {
+            responses.add(GetDocumentAnalysisResponse.builder().blocks(generator.Page(p, shape)).build());
+        }
+        return responses;
+    }
+
+    /**
+     * Every recorded document in the configured directory as a single response, or an empty list when none is set.
+     */
+    static List<List<GetDocumentAnalysisResponse>> Recorded() throws IOException {
+        List<List<GetDocumentAnalysisResponse>> documents = new ArrayList<>();
+        if (RECORDED_DIR.isBlank()) return documents;
+        try (Stream<Path> files = Files.list(Paths.get(RECORDED_DIR))) {
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(".blocks")).sorted().toList()) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    documents.add(List.of(GetDocumentAnalysisResponse.builder().blocks(BlockCodec.readAll(in)).build()));
+                }
+            }
+        }
+        return documents;
+    }
+
+    static List<Block> Blocks(List<GetDocumentAnalysisResponse> responses) {
+        List<Block> blocks = new ArrayList<>();
+        for (GetDocumentAnalysisResponse response : responses) blocks.addAll(response.blocks());
+        return blocks;
+    }
+
+    private List<Block> Page(int number, Shape shape) {
+        page.clear();
+        pageChildren.clear();
+        // The PAGE block goes first but its children are only known once the page is laid out.
+        page.add(null);
+        switch (shape) {
+            case TEXT -> Text(number, 0.05f, 0.95f);
+            case FORM -> Form(number, 0.05f, 0.95f);
+            case TABLE -> Table(number, 0.05f, 0.95f);
+            case MIXED -> {
+                Form(number, 0.05f, 0.35f);
+                Table(number, 0.4f, 0.7f);
+                Text(number, 0.72f, 0.95f);
+            }
+        }
+        page.set(0, NewBlock(NextId(), BlockType.PAGE, number, 0, 0, 1, 1)
+                .relationships(Children(pageChildren))
+                .build());
+        return new ArrayList<>(page);
+    }
+
+    private void Text(int number, float top, float bottom) {
+        float height = (bottom - top) / LINES_PER_COLUMN;
+        for (int column = 0; column < 2; column++) {
+            float left = column == 0 ? 0.05f : 0.53f;
+            for (int row = 0; row < LINES_PER_COLUMN; row++) {
+                String[] text = new String[WORDS_PER_LINE];
+                for (int w = 0; w < text.length; w++) text[w] = WORDS[random.nextInt(WORDS.length)];
+                LineOver(number, Words(number, text, left, top + row * height, 0.42f, height * 0.8f),
+                        text, left, top + row * height, 0.42f, height * 0.8f);
+            }
+        }
+    }
+
+    private void Form(int number, float top, float bottom) {
+        int perColumn = (FIELDS_PER_PAGE + 1) / 2;
+        float height = (bottom - top) / perColumn;
+        for (int f = 0; f < FIELDS_PER_PAGE; f++) {
+            float left = f < perColumn ? 0.05f : 0.53f;
+            float y = top + (f % perColumn) * height;
+            String[] key = (KEYS[f % KEYS.length] + (f < KEYS.length ? "" : " " + (f / KEYS.length + 1))).split(" ");
+            String[] value = {String.valueOf(100000 + random.nextInt(900000)), WORDS[random.nextInt(WORDS.length)]};
+
+            List<String> keyWords = Words(number, key, left, y, 0.2f, height * 0.8f);
+            List<String> valueWords = Words(number, value, left + 0.22f, y, 0.18f, height * 0.8f);
+            String keyId = NextId();
+            String valueId = NextId();
+            page.add(NewBlock(keyId, BlockType.KEY_VALUE_SET, number, left, y, 0.2f, height * 0.8f)
+                    .entityTypes(EntityType.KEY)
+                    .relationships(Relationship.builder().type(RelationshipType.VALUE).ids(valueId).build(),
+                            Relationship.builder().type(RelationshipType.CHILD).ids(keyWords).build())
+                    .build());
+            page.add(NewBlock(valueId, BlockType.KEY_VALUE_SET, number, left + 0.22f, y, 0.18f, height * 0.8f)
+                    .entityTypes(EntityType.VALUE)
+                    .relationships(Children(valueWords))
+                    .build());
+            pageChildren.add(keyId);
+            pageChildren.add(valueId);
+            LineOver(number, keyWords, key, left, y, 0.2f, height * 0.8f);
+            LineOver(number, valueWords, value, left + 0.22f, y, 0.18f, height * 0.8f);
+        }
+    }
+
+    private void Table(int number, float top, float bottom) {
+        float height = (bottom - top) / TABLE_ROWS;
+        float width = 0.9f / TABLE_COLUMNS;
+        List<String> cells = new ArrayList<>(TABLE_ROWS * TABLE_COLUMNS);
+        for (int r = 1; r <= TABLE_ROWS; r++) {
+            for (int c = 1; c <= TABLE_COLUMNS; c++) {
+                float left = 0.05f + (c - 1) * width;
+                float y = top + (r - 1) * height;
+                String[] text = r == 1
+                        ? new String[]{WORDS[c % WORDS.length], "col" + c}
+                        : new String[]{String.format("%,.2f", random.nextDouble() * 10000)};
+                List<String> words = Words(number, text, left, y, width * 0.9f, height * 0.8f);
+                LineOver(number, words, text, left, y, width * 0.9f, height * 0.8f);
+                String cellId = NextId();
+                Block.Builder cell = NewBlock(cellId, BlockType.CELL, number, left, y, width, height)
+                        .rowIndex(r).columnIndex(c).rowSpan(1).columnSpan(1)
+                        .relationships(Children(words));
+                if (r == 1) cell.entityTypes(EntityType.COLUMN_HEADER);
+                page.add(cell.build());
+                cells.add(cellId);
+            }
+        }
+        String tableId = NextId();
+        page.add(NewBlock(tableId, BlockType.TABLE, number, 0.05f, top, 0.9f, bottom - top)
+                .relationships(Children(cells))
+                .build());
+        pageChildren.add(tableId);
+    }
+
+    private void LineOver(int number, List<String> words, String[] text, float left, float top, float width, float height) {
+        String lineId = NextId();
+        page.add(NewBlock(lineId, BlockType.LINE, number, left, top, width, height)
+                .text(String.join(" ", text))
+                .relationships(Children(words))
+                .build());
+        pageChildren.add(lineId);
+    }
+
+    private List<String> Words(int number, String[] text, float left, float top, float width, float height) {
+        List<String> ids = new ArrayList<>(text.length);
+        float step = width / text.length;
+        for (int w = 0; w < text.length; w++) {
+            String id = NextId();
+            page.add(NewBlock(id, BlockType.WORD, number, left + w * step, top, step * 0.9f, height)
+                    .text(text[w])
+                    .build());
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private Block.Builder NewBlock(String id, BlockType type, int number, float left, float top, float width, float height) {
+        return Block.builder()
+                .id(id)
+                .blockType(type)
+                .page(number)
+                .confidence(90f + random.nextFloat() * 10f)
+                .geometry(Geometry.builder()
+                        .boundingBox(BoundingBox.builder().left(left).top(top).width(width).height(height).build())
+                        .polygon(Point.builder().x(left).y(top).build(),
+                                Point.builder().x(left + width).y(top).build(),
+                                Point.builder().x(left + width).y(top + height).build(),
+                                Point.builder().x(left).y(top + height).build())
+                        .build());
+    }
+
+    private static Relationship Children(List<String> ids) {
+        return Relationship.builder().type(RelationshipType.CHILD).ids(ids).build();
+    }
+
+    private String NextId() {
+        int id = nextId++;
+        return String.format("%08x-0000-4000-8000-%012x", id, id);
+    }
+}
@@ -0,0 +1,23 @@
+package ethan.entelect.textract.demo.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+final class Arguments {
+    private Arguments() {
+    }
+
+    /**
+     * Reads --name=value arguments; a bare --name counts as "true".
+     */
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            int equals = arg.indexOf('=');
+            if (equals < 0) values.put(arg.substring(2), "true");
+            else values.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,256 @@
+package ethan.entelect.textract.demo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for the Textract and S3 endpoints the application calls, so the controller can be load tested
+ * without AWS. Both services are answered on one port: requests carrying an X-Amz-Target header are Textract
+ * JSON calls, everything else is treated as an S3 path style request. Uploaded objects are read and
+ * acknowledged but not kept; Textract calls are answered from {@link RecordedResponses}.
+ * <p>
+ * Run it, then start the application with textract.endpoint.textract and textract.endpoint.s3 pointing here
+ * and textract.jobs.completion=polling (SNS and SQS are not faked).
+ */
+public class FakeAwsServer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(FakeAwsServer.class);
+
+    private static final String TEXTRACT_TARGET = "Textract.";
+    private static final String JSON = "application/x-amz-json-1.1";
+    private static final String S3_NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+
+    private final Options options;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final RecordedResponses responses;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private HttpServer server;
+
+    public FakeAwsServer(Options options) throws IOException {
+        this.options = options;
+        this.responses = new RecordedResponses(mapper, options.recordings, options.generatedFields);
+    }
+
+    public static void main(String[] args) throws IOException {
+        FakeAwsServer server = new FakeAwsServer(Options.parse(args));
+        server.start();
+        log.info("Fake Textract/S3 listening on http://localhost:{}", server.getPort());
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(options.port), 512);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+            if (target != null && target.startsWith(TEXTRACT_TARGET)) {
+                handleTextract(exchange, target.substring(TEXTRACT_TARGET.length()));
+            } else {
+                handleS3(exchange);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Fake AWS request failed", e);
+            send(exchange, 500, JSON, "{\"__type\":\"InternalServerError\",\"message\":\"" + e + "\"}");
+        }
+    }
+
+    private void handleTextract(HttpExchange exchange, String operation) throws IOException, InterruptedException {
+        JsonNode request = mapper.readTree(exchange.getRequestBody());
+        sleep(options.latencyMs, options.jitterMs);
+        if (options.throttleRate > 0 && ThreadLocalRandom.current().nextDouble() < options.throttleRate) {
+            send(exchange, 400, JSON, "{\"__type\":\"ThrottlingException\",\"message\":\"Rate exceeded\"}");
+            return;
+        }
+
+        ObjectNode response = mapper.createObjectNode();
+        switch (operation) {
+            case "AnalyzeDocument" -> {
+                int document = responses.next();
+                response.putObject("DocumentMetadata").put("Pages", responses.pageCount(document));
+                response.put("AnalyzeDocumentModelVersion", "1.0");
+                ArrayNode blocks = response.putArray("Blocks");
+                for (JsonNode block : responses.get(document)) blocks.add(block);
+            }
+            case "StartDocumentAnalysis" -> {
+                String jobId = UUID.randomUUID().toString();
+                jobs.put(jobId, new Job(responses.next(), System.nanoTime()));
+                response.put("JobId", jobId);
+            }
+            case "GetDocumentAnalysis" -> {
+                Job job = jobs.get(request.path("JobId").asText());
+                if (job == null) {
+                    send(exchange, 400, JSON, "{\"__type\":\"InvalidJobIdException\",\"message\":\"Unknown job\"}");
+                    return;
+                }
+                if (System.nanoTime() - job.started < TimeUnit.MILLISECONDS.toNanos(options.inProgressMs)) {
+                    response.put("JobStatus", "IN_PROGRESS");
+                    break;
+                }
+                List<JsonNode> all = responses.get(job.document);
+                int maxResults = request.path("MaxResults").asInt(options.pageSize);
+                int from = request.hasNonNull("NextToken") ? Integer.parseInt(request.get("NextToken").asText()) : 0;
+                int to = Math.min(all.size(), from + Math.min(maxResults, options.pageSize));
+                response.putObject("DocumentMetadata").put("Pages", responses.pageCount(job.document));
+                response.put("JobStatus", "SUCCEEDED");
+                response.put("AnalyzeDocumentModelVersion", "1.0");
+                ArrayNode blocks = response.putArray("Blocks");
+                for (int i = from; i < to; i++) blocks.add(all.get(i));
+                if (to < all.size()) response.put("NextToken", String.valueOf(to));
+            }
+            default -> {
+                send(exchange, 400, JSON, "{\"__type\":\"UnknownOperationException\",\"message\":\"" + operation + "\"}");
+                return;
+            }
+        }
+        send(exchange, 200, JSON, mapper.writeValueAsString(response));
+    }
+
+    private void handleS3(HttpExchange exchange) throws IOException, InterruptedException {
+        String method = exchange.getRequestMethod();
+        String query = exchange.getRequestURI().getRawQuery() == null ? "" : exchange.getRequestURI().getRawQuery();
+        String path = exchange.getRequestURI().getPath();
+        int slash = path.indexOf('/', 1);
+        String bucket = slash < 0 ? path.substring(1) : path.substring(1, slash);
+        String key = slash < 0 ? "" : path.substring(slash + 1);
+        byte[] body = readPayload(exchange);
+        sleep(options.s3LatencyMs, 0);
+
+        if (method.equals("PUT")) {
+            // The SDK checks the ETag of a single part upload against the MD5 of what it sent.
+            exchange.getResponseHeaders().add("ETag", "\"" + md5(body) + "\"");
+            send(exchange, 200, null, "");
+        } else if (method.equals("POST") && query.contains("uploads")) {
+            send(exchange, 200, "application/xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                    + "<InitiateMultipartUploadResult xmlns=\"" + S3_NAMESPACE + "\"><Bucket>" + bucket + "</Bucket><Key>" + key
+                    + "</Key><UploadId>" + UUID.randomUUID() + "</UploadId></InitiateMultipartUploadResult>");
+        } else if (method.equals("POST") && query.contains("uploadId")) {
+            send(exchange, 200, "application/xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                    + "<CompleteMultipartUploadResult xmlns=\"" + S3_NAMESPACE + "\"><Location>" + exchange.getRequestURI()
+                    + "</Location><Bucket>" + bucket + "</Bucket><Key>" + key + "</Key><ETag>\"" + md5(body)
+                    + "-1\"</ETag></CompleteMultipartUploadResult>");
+        } else if (method.equals("DELETE")) {
+            send(exchange, 204, null, "");
+        } else {
+            send(exchange, 405, null, "");
+        }
+    }
+
+    /**
+     * The request body, with aws-chunked framing removed when the SDK streamed it with per-chunk signatures.
+     */
+    private static byte[] readPayload(HttpExchange exchange) throws IOException {
+        byte[] raw = exchange.getRequestBody().readAllBytes();
+        String sha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        if (sha == null || !sha.startsWith("STREAMING-")) return raw;
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream(raw.length);
+        int position = 0;
+        while (position < raw.length) {
+            int lineEnd = position;
+            while (lineEnd + 1 < raw.length && !(raw[lineEnd] == '\r' && raw[lineEnd + 1] == '\n')) lineEnd++;
+            String header = new String(raw, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int semicolon = header.indexOf(';');
+            int size = Integer.parseInt(semicolon < 0 ? header.trim() : header.substring(0, semicolon), 16);
+            if (size == 0) break;
+            decoded.write(raw, lineEnd + 2, size);
+            position = lineEnd + 2 + size + 2;
+        }
+        return decoded.toByteArray();
+    }
+
+    private static String md5(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis, long jitterMillis) throws InterruptedException {
+        long total = millis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (total > 0) Thread.sleep(total);
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        if (contentType != null) exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.getResponseHeaders().add("x-amzn-RequestId", UUID.randomUUID().toString());
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private record Job(int document, long started) {
+    }
+
+    /**
+     * Server settings, read from --name=value arguments.
+     */
+    public static class Options {
+        int port = 4566;
+        String recordings = "";
+        int generatedFields = 20;
+        long latencyMs = 200;
+        long jitterMs = 100;
+        long s3LatencyMs = 20;
+        int pageSize = 1000;
+        long inProgressMs = 3000;
+        double throttleRate = 0;
+
+        public static Options parse(String[] args) {
+            Map<String, String> values = Arguments.parse(args);
+            Options options = new Options();
+            options.port = Integer.parseInt(values.getOrDefault("port", String.valueOf(options.port)));
+            options.recordings = values.getOrDefault("recordings", options.recordings);
+            options.generatedFields = Integer.parseInt(values.getOrDefault("generated-fields", String.valueOf(options.generatedFields)));
+            options.latencyMs = Long.parseLong(values.getOrDefault("latency-ms", String.valueOf(options.latencyMs)));
+            options.jitterMs = Long.parseLong(values.getOrDefault("jitter-ms", String.valueOf(options.jitterMs)));
+            options.s3LatencyMs = Long.parseLong(values.getOrDefault("s3-latency-ms", String.valueOf(options.s3LatencyMs)));
+            options.pageSize = Integer.parseInt(values.getOrDefault("page-size", String.valueOf(options.pageSize)));
+            options.inProgressMs = Long.parseLong(values.getOrDefault("in-progress-ms", String.valueOf(options.inProgressMs)));
+            options.throttleRate = Double.parseDouble(values.getOrDefault("throttle-rate", String.valueOf(options.throttleRate)));
+            return options;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package ethan.entelect.textract.demo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed loop load generator for the upload endpoints: a fixed number of workers each send the next request
+ * as soon as their previous one finishes. Reports throughput and p50/p90/p99 latency for the upload call,
+ * and for /kvs also the time until the job's status reaches SUCCEEDED or FAILED.
+ * Every upload gets a unique trailer by default so requests are not answered from the result cache.
+ */
+public class LoadHarness {
+    private final Options options;
+    private final HttpClient client;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final byte[] document;
+
+    public LoadHarness(Options options) throws IOException {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newFixedThreadPool(Math.max(2, options.concurrency)))
+                .build();
+        this.document = Files.readAllBytes(Path.of(options.file));
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadHarness harness = new LoadHarness(Options.parse(args));
+        harness.run(harness.options.warmup, null);
+        Results results = new Results();
+        harness.run(harness.options.requests, results);
+        results.print(harness.options);
+        System.exit(0);
+    }
+
+    /**
+     * Sends the given number of uploads over the configured number of workers, recording into results
+     * unless it is null (warm up).
+     */
+    public void run(int requests, Results results) throws InterruptedException {
+        if (requests <= 0) return;
+        AtomicInteger remaining = new AtomicInteger(requests);
+        ExecutorService workers = Executors.newFixedThreadPool(options.concurrency);
+        long started = System.nanoTime();
+        for (int w = 0; w < options.concurrency; w++) {
+            workers.execute(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    send(results);
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.DAYS);
+        if (results != null) results.elapsedNanos = System.nanoTime() - started;
+    }
+
+    private void send(Results results) {
+        String boundary = UUID.randomUUID().toString();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(options.target + options.path))
+                .timeout(Duration.ofMillis(options.timeoutMs))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(multipart(boundary)))
+                .build();
+        long started = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            long uploaded = System.nanoTime();
+            String outcome = String.valueOf(response.statusCode());
+            if (options.path.equals("/kvs") && response.statusCode() == 202) {
+                String location = response.headers().firstValue("Location").orElse(null);
+                outcome = location == null ? "no-location" : await(location, started);
+            }
+            if (results != null) results.record(outcome, uploaded - started, System.nanoTime() - started);
+        } catch (IOException e) {
+            if (results != null) results.record(e.getClass().getSimpleName(), System.nanoTime() - started, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Polls the job until it finishes or the request timeout passes, returning its final status.
+     */
+    private String await(String location, long started) throws IOException, InterruptedException {
+        HttpRequest poll = HttpRequest.newBuilder(URI.create(options.target + location)).GET().build();
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(options.timeoutMs);
+        while (System.nanoTime() < deadline) {
+            HttpResponse<String> response = client.send(poll, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) return String.valueOf(response.statusCode());
+            JsonNode status = mapper.readTree(response.body()).path("status");
+            if (status.asText().equals("SUCCEEDED") || status.asText().equals("FAILED")) return status.asText();
+            Thread.sleep(options.pollMs);
+        }
+        return "timeout";
+    }
+
+    private byte[] multipart(String boundary) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(document.length + 256);
+        String name = Path.of(options.file).getFileName().toString();
+        body.writeBytes(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"" + name
+                + "\"\r\nContent-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(document);
+        // Bytes after a PDF's %%EOF are ignored by readers but change the content hash the cache is keyed on.
+        if (options.unique) body.writeBytes(("\n%" + UUID.randomUUID() + "\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    public static class Results {
+        private final List<long[]> samples = new ArrayList<>();
+        private final Map<String, Integer> outcomes = new TreeMap<>();
+        private long elapsedNanos;
+
+        synchronized void record(String outcome, long uploadNanos, long completeNanos) {
+            samples.add(new long[]{uploadNanos, completeNanos});
+            outcomes.merge(outcome, 1, Integer::sum);
+        }
+
+        synchronized void print(Options options) {
+            double seconds = elapsedNanos / 1e9;
+            System.out.printf("%s %s, concurrency %d: %d requests in %.1fs, %.1f req/s%n", options.target, options.path,
+                    options.concurrency, samples.size(), seconds, samples.size() / seconds);
+            System.out.println("outcomes " + outcomes);
+            print("upload", 0);
+            if (options.path.equals("/kvs")) print("job", 1);
+        }
+
+        private void print(String label, int column) {
+            long[] latencies = samples.stream().mapToLong(s -> s[column]).filter(n -> n >= 0).sorted().toArray();
+            if (latencies.length == 0) return;
+            System.out.printf("%-6s p50 %7.1fms  p90 %7.1fms  p99 %7.1fms  max %7.1fms  mean %7.1fms%n", label,
+                    percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                    latencies[latencies.length - 1] / 1e6, Arrays.stream(latencies).average().orElse(0) / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            int rank = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, rank))] / 1e6;
+        }
+    }
+
+    /**
+     * Harness settings, read from --name=value arguments.
+     */
+    public static class Options {
+        String target = "http://localhost:8080";
+        String path = "/kv";
+        String file = "test-form.pdf";
+        int concurrency = 8;
+        int requests = 200;
+        int warmup = 20;
+        boolean unique = true;
+        long pollMs = 250;
+        long timeoutMs = 120000;
+
+        public static Options parse(String[] args) {
+            Map<String, String> values = Arguments.parse(args);
+            Options options = new Options();
+            options.target = values.getOrDefault("target", options.target);
+            options.path = values.getOrDefault("path", options.path);
+            options.file = values.getOrDefault("file", options.file);
+            options.concurrency = Integer.parseInt(values.getOrDefault("concurrency", String.valueOf(options.concurrency)));
+            options.requests = Integer.parseInt(values.getOrDefault("requests", String.valueOf(options.requests)));
+            options.warmup = Integer.parseInt(values.getOrDefault("warmup", String.valueOf(options.warmup)));
+            options.unique = Boolean.parseBoolean(values.getOrDefault("unique", String.valueOf(options.unique)));
+            options.pollMs = Long.parseLong(values.getOrDefault("poll-ms", String.valueOf(options.pollMs)));
+            options.timeoutMs = Long.parseLong(values.getOrDefault("timeout-ms", String.valueOf(options.timeoutMs)));
+            return options;
+        }
+    }
+}
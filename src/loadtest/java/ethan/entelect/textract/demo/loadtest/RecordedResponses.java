@@ -0,0 +1,172 @@
+package ethan.entelect.textract.demo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import ethan.entelect.textract.demo.util.BlockCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BoundingBox;
+import software.amazon.awssdk.services.textract.model.EntityType;
+import software.amazon.awssdk.services.textract.model.Point;
+import software.amazon.awssdk.services.textract.model.Relationship;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * The documents the stand-in server answers with, each held as its flat list of JSON blocks.
+ * A recordings directory may hold raw Textract responses saved as ".json" (a single AnalyzeDocument or
+ * GetDocumentAnalysis response, or an array of GetDocumentAnalysis pages) and the ".blocks" files the result
+ * cache writes. Without recordings a small generated form is served. Documents are handed out round robin.
+ */
+class RecordedResponses {
+    private static final Logger log = LoggerFactory.getLogger(RecordedResponses.class);
+
+    private final ObjectMapper mapper;
+    private final List<List<JsonNode>> documents = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    RecordedResponses(ObjectMapper mapper, String dir, int generatedFields) throws IOException {
+        this.mapper = mapper;
+        if (dir != null && !dir.isBlank()) {
+            try (Stream<Path> files = Files.list(Path.of(dir))) {
+                for (Path file : files.sorted().toList()) {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(".json")) documents.add(readJson(file));
+                    else if (name.endsWith(".blocks")) documents.add(readBlocks(file));
+                }
+            }
+        }
+        if (documents.isEmpty()) documents.add(generatedForm(generatedFields));
+        log.info("Serving {} recorded document(s)", documents.size());
+    }
+
+    int next() {
+        return Math.floorMod(next.getAndIncrement(), documents.size());
+    }
+
+    List<JsonNode> get(int document) {
+        return documents.get(document);
+    }
+
+    int pageCount(int document) {
+        int pages = 0;
+        for (JsonNode block : documents.get(document)) {
+            if ("PAGE".equals(block.path("BlockType").asText())) pages++;
+        }
+        return Math.max(pages, 1);
+    }
+
+    private List<JsonNode> readJson(Path file) throws IOException {
+        JsonNode root = mapper.readTree(file.toFile());
+        List<JsonNode> blocks = new ArrayList<>();
+        for (JsonNode response : root.isArray() ? root : List.of(root)) {
+            for (JsonNode block : response.path("Blocks")) blocks.add(block);
+        }
+        return blocks;
+    }
+
+    private List<JsonNode> readBlocks(Path file) throws IOException {
+        List<JsonNode> blocks = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            for (Block block : BlockCodec.readAll(in)) blocks.add(toJson(block));
+        }
+        return blocks;
+    }
+
+    /**
+     * The block in the service's wire format, for the fields BlockCodec keeps.
+     */
+    private JsonNode toJson(Block block) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("Id", block.id());
+        node.put("BlockType", block.blockTypeAsString());
+        if (block.entityTypes() != null && !block.entityTypes().isEmpty()) {
+            ArrayNode entityTypes = node.putArray("EntityTypes");
+            for (EntityType entityType : block.entityTypes()) entityTypes.add(entityType.toString());
+        }
+        if (block.confidence() != null) node.put("Confidence", block.confidence());
+        if (block.text() != null) node.put("Text", block.text());
+        if (block.selectionStatus() != null) node.put("SelectionStatus", block.selectionStatusAsString());
+        if (block.rowIndex() != null) node.put("RowIndex", block.rowIndex());
+        if (block.columnIndex() != null) node.put("ColumnIndex", block.columnIndex());
+        if (block.rowSpan() != null) node.put("RowSpan", block.rowSpan());
+        if (block.columnSpan() != null) node.put("ColumnSpan", block.columnSpan());
+        if (block.page() != null) node.put("Page", block.page());
+        if (block.geometry() != null) {
+            ObjectNode geometry = node.putObject("Geometry");
+            BoundingBox bb = block.geometry().boundingBox();
+            geometry.putObject("BoundingBox")
+                    .put("Width", bb.width()).put("Height", bb.height()).put("Left", bb.left()).put("Top", bb.top());
+            ArrayNode polygon = geometry.putArray("Polygon");
+            if (block.geometry().polygon() != null) {
+                for (Point p : block.geometry().polygon()) polygon.addObject().put("X", p.x()).put("Y", p.y());
+            }
+        }
+        if (block.relationships() != null && !block.relationships().isEmpty()) {
+            ArrayNode relationships = node.putArray("Relationships");
+            for (Relationship r : block.relationships()) {
+                ObjectNode relationship = relationships.addObject().put("Type", r.typeAsString());
+                ArrayNode ids = relationship.putArray("Ids");
+                for (String id : r.ids()) ids.add(id);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * One page with the given number of "Field n" / "Value n" pairs laid out down the page.
+     */
+    private List<JsonNode> generatedForm(int fields) {
+        List<JsonNode> blocks = new ArrayList<>();
+        ObjectNode page = block("page", "PAGE", 0, 0, 1, 1);
+        ArrayNode pageChildren = page.putArray("Relationships").addObject().put("Type", "CHILD").putArray("Ids");
+        blocks.add(page);
+        float height = 0.9f / Math.max(fields, 1);
+        for (int f = 1; f <= fields; f++) {
+            float top = 0.05f + (f - 1) * height;
+            ObjectNode keyWord = block("kw" + f, "WORD", 0.1f, top, 0.2f, height * 0.8f).put("Text", "Field " + f);
+            ObjectNode valueWord = block("vw" + f, "WORD", 0.5f, top, 0.2f, height * 0.8f).put("Text", "Value " + f);
+            ObjectNode key = block("k" + f, "KEY_VALUE_SET", 0.1f, top, 0.2f, height * 0.8f);
+            key.putArray("EntityTypes").add("KEY");
+            ArrayNode keyRelationships = key.putArray("Relationships");
+            keyRelationships.addObject().put("Type", "VALUE").putArray("Ids").add("v" + f);
+            keyRelationships.addObject().put("Type", "CHILD").putArray("Ids").add("kw" + f);
+            ObjectNode value = block("v" + f, "KEY_VALUE_SET", 0.5f, top, 0.2f, height * 0.8f);
+            value.putArray("EntityTypes").add("VALUE");
+            value.putArray("Relationships").addObject().put("Type", "CHILD").putArray("Ids").add("vw" + f);
+            blocks.add(key);
+            blocks.add(value);
+            blocks.add(keyWord);
+            blocks.add(valueWord);
+            pageChildren.add("k" + f).add("v" + f);
+        }
+        return blocks;
+    }
+
+    private ObjectNode block(String id, String type, float left, float top, float width, float height) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("Id", id);
+        node.put("BlockType", type);
+        node.put("Confidence", 99.0f);
+        node.put("Page", 1);
+        ObjectNode geometry = node.putObject("Geometry");
+        geometry.putObject("BoundingBox").put("Width", width).put("Height", height).put("Left", left).put("Top", top);
+        ArrayNode polygon = geometry.putArray("Polygon");
+        polygon.addObject().put("X", left).put("Y", top);
+        polygon.addObject().put("X", left + width).put("Y", top);
+        polygon.addObject().put("X", left + width).put("Y", top + height);
+        polygon.addObject().put("X", left).put("Y", top + height);
+        return node;
+    }
+}
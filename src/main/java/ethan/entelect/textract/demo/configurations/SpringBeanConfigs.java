@@ -1,23 +1,40 @@
 package ethan.entelect.textract.demo.configurations;
 
+import ethan.entelect.textract.demo.services.SdkCallTracing;
 import ethan.entelect.textract.demo.util.SpringAwsCredentialsProvider;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.textract.TextractAsyncClient;
+import software.amazon.awssdk.services.textract.TextractAsyncClientBuilder;
 import software.amazon.awssdk.services.textract.TextractClient;
+import software.amazon.awssdk.services.textract.TextractClientBuilder;
 
+import java.net.URI;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 public class SpringBeanConfigs {
     private final SpringAwsCredentialsProvider springAwsCredentialsProvider;
+    private final SdkCallTracing sdkCallTracing;
 
-    public SpringBeanConfigs(SpringAwsCredentialsProvider springAwsCredentialsProvider){
+    public SpringBeanConfigs(SpringAwsCredentialsProvider springAwsCredentialsProvider, SdkCallTracing sdkCallTracing){
         this.springAwsCredentialsProvider = springAwsCredentialsProvider;
+        this.sdkCallTracing = sdkCallTracing;
     }
 
     @Value("${cloud.aws.region.bucket}")
@@ -25,28 +42,130 @@ public class SpringBeanConfigs {
 
     @Value("${cloud.aws.region.analysis}")
     private String analysisRegion;
+
+    // Point the clients at a stand-in service (the load test server, LocalStack) instead of AWS; empty means AWS.
+    @Value("${textract.endpoint.textract:}")
+    private String textractEndpoint;
+
+    @Value("${textract.endpoint.s3:}")
+    private String s3Endpoint;
+
+    @Value("${textract.sdk.async.max-concurrency:200}")
+    private int asyncMaxConcurrency;
+
+    @Value("${textract.sdk.async.event-loop-threads:4}")
+    private int asyncEventLoopThreads;
+
+    private SdkEventLoopGroup sdkEventLoopGroup;
+
     @Bean(destroyMethod = "close")
     public TextractClient textractClient() {
-        return TextractClient.builder()
+        TextractClientBuilder builder = TextractClient.builder()
                 .region(Region.of(analysisRegion))
                 .credentialsProvider(springAwsCredentialsProvider)
-                .build();
+                .overrideConfiguration(c -> c.addExecutionInterceptor(sdkCallTracing));
+        if (!textractEndpoint.isBlank()) builder.endpointOverride(URI.create(textractEndpoint));
+        return builder.build();
     }
 
     @Bean(destroyMethod = "close")
     public S3Client s3Client() {
-        return S3Client.builder()
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(bucketRegion))
+                .credentialsProvider(springAwsCredentialsProvider)
+                .overrideConfiguration(c -> c.addExecutionInterceptor(sdkCallTracing));
+        if (!s3Endpoint.isBlank()) builder.endpointOverride(URI.create(s3Endpoint)).forcePathStyle(true);
+        return builder.build();
+    }
+
+    // One event loop group serves both async clients. A client does not shut down a group it was given, so
+    // the group is shut down here once the clients have been closed.
+    @Bean
+    @ConditionalOnProperty(name = "textract.sdk.mode", havingValue = "async")
+    public SdkEventLoopGroup sdkEventLoopGroup() {
+        sdkEventLoopGroup = SdkEventLoopGroup.builder().numberOfThreads(asyncEventLoopThreads).build();
+        return sdkEventLoopGroup;
+    }
+
+    @PreDestroy
+    public void shutdownEventLoopGroup() {
+        if (sdkEventLoopGroup != null) sdkEventLoopGroup.eventLoopGroup().shutdownGracefully();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "textract.sdk.mode", havingValue = "async")
+    public TextractAsyncClient textractAsyncClient(SdkEventLoopGroup sdkEventLoopGroup) {
+        TextractAsyncClientBuilder builder = TextractAsyncClient.builder()
+                .region(Region.of(analysisRegion))
+                .credentialsProvider(springAwsCredentialsProvider)
+                .httpClientBuilder(asyncHttpClientBuilder(sdkEventLoopGroup))
+                .overrideConfiguration(c -> c.addExecutionInterceptor(sdkCallTracing));
+        if (!textractEndpoint.isBlank()) builder.endpointOverride(URI.create(textractEndpoint));
+        return builder.build();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "textract.sdk.mode", havingValue = "async")
+    public S3AsyncClient s3AsyncClient(SdkEventLoopGroup sdkEventLoopGroup) {
+        S3AsyncClientBuilder builder = S3AsyncClient.builder()
                 .region(Region.of(bucketRegion))
                 .credentialsProvider(springAwsCredentialsProvider)
+                .httpClientBuilder(asyncHttpClientBuilder(sdkEventLoopGroup))
+                .overrideConfiguration(c -> c.addExecutionInterceptor(sdkCallTracing));
+        if (!s3Endpoint.isBlank()) builder.endpointOverride(URI.create(s3Endpoint)).forcePathStyle(true);
+        return builder.build();
+    }
+
+    private NettyNioAsyncHttpClient.Builder asyncHttpClientBuilder(SdkEventLoopGroup sdkEventLoopGroup) {
+        return NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(asyncMaxConcurrency)
+                .eventLoopGroup(sdkEventLoopGroup);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "textract.jobs.completion", havingValue = "sqs")
+    public SqsClient sqsClient() {
+        return SqsClient.builder()
+                .region(Region.of(analysisRegion))
+                .credentialsProvider(springAwsCredentialsProvider)
                 .build();
     }
 
+    // Uploads are where new work is admitted, so a full queue rejects the caller instead of growing without bound.
+    @Bean
+    public Executor uploadExecutor(@Value("${textract.executor.upload.threads:4}") int threads,
+                                   @Value("${textract.executor.upload.queue-capacity:100}") int queueCapacity) {
+        return stageExecutor("upload-", threads, queueCapacity, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Later stages only see work that was already admitted, so they push back on the submitting thread instead.
+    @Bean
+    public Executor analysisExecutor(@Value("${textract.executor.analysis.threads:4}") int threads,
+                                     @Value("${textract.executor.analysis.queue-capacity:500}") int queueCapacity) {
+        return stageExecutor("analysis-", threads, queueCapacity, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // Job polls are timed by the tracker's scheduler thread, which must never run one itself, so a full queue
+    // rejects the poll and the tracker puts it back on the schedule.
     @Bean
-    public Executor taskExecutor() {
+    public Executor pollExecutor(@Value("${textract.executor.poll.threads:4}") int threads,
+                                 @Value("${textract.executor.poll.queue-capacity:500}") int queueCapacity) {
+        return stageExecutor("poll-", threads, queueCapacity, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean
+    public Executor parseExecutor(@Value("${textract.executor.parse.threads:2}") int threads,
+                                  @Value("${textract.executor.parse.queue-capacity:500}") int queueCapacity) {
+        return stageExecutor("parse-", threads, queueCapacity, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private Executor stageExecutor(String threadNamePrefix, int threads, int queueCapacity, RejectedExecutionHandler rejectedExecutionHandler) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(2);
-        executor.setMaxPoolSize(2);
-        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(rejectedExecutionHandler);
         executor.initialize();
         return executor;
     }
@@ -1,14 +1,24 @@
 package ethan.entelect.textract.demo.controllers;
 
 import ethan.entelect.textract.demo.services.AmazonService;
+import ethan.entelect.textract.demo.services.AnalysisJob;
+import ethan.entelect.textract.demo.services.AnalysisRejectedException;
+import ethan.entelect.textract.demo.services.DocumentSearchIndex;
+import ethan.entelect.textract.demo.services.JobRegistry;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.net.URI;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -16,6 +26,8 @@ import java.util.Map;
 public class DocumentController {
 
     private final AmazonService amazonService;
+    private final JobRegistry jobRegistry;
+    private final DocumentSearchIndex searchIndex;
 
     @GetMapping
     public String helloWorld() {
@@ -30,10 +42,52 @@ public class DocumentController {
 
     @PostMapping("/kvs")
     public ResponseEntity<Map<String, String>> analyzeDataAsync(@RequestParam(name = "file") final MultipartFile file) {
-        boolean success = amazonService.analyzeDocAsync(file);
-        if (success)
-            return ResponseEntity.ok().build();
+        AnalysisJob job = amazonService.analyzeDocAsync(file);
+        if (job != null)
+            return ResponseEntity.accepted()
+                    .location(URI.create("/jobs/" + job.getId()))
+                    .body(job.toStatusMap());
         else
             return ResponseEntity.status(400).build();
     }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<Map<String, String>> jobStatus(@PathVariable final String id) {
+        AnalysisJob job = jobRegistry.get(id);
+        if (job == null)
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(job.toStatusMap());
+    }
+
+    @GetMapping("/jobs/{id}/result")
+    public ResponseEntity<Map<String, String>> jobResult(@PathVariable final String id) {
+        AnalysisJob job = jobRegistry.get(id);
+        if (job == null)
+            return ResponseEntity.notFound().build();
+        switch (job.getStatus()) {
+            case SUCCEEDED:
+                return ResponseEntity.ok(job.getResult());
+            case FAILED:
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(job.toStatusMap());
+            default:
+                return ResponseEntity.accepted().body(job.toStatusMap());
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<Map<String, String>>> search(@RequestParam(name = "key", required = false) final String key,
+                                                            @RequestParam(name = "value", required = false) final String value,
+                                                            @RequestParam(name = "q", required = false) final String query,
+                                                            @RequestParam(name = "limit", defaultValue = "100") final int limit) {
+        if ((key == null || key.isBlank()) && (query == null || query.isBlank()))
+            return ResponseEntity.badRequest().build();
+        return ResponseEntity.ok(searchIndex.search(key, value, query, limit));
+    }
+
+    @ExceptionHandler(AnalysisRejectedException.class)
+    public ResponseEntity<Map<String, String>> analysisRejected(AnalysisRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("error", e.getMessage()));
+    }
 }
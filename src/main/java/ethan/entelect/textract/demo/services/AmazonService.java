@@ -6,5 +6,5 @@ import java.util.Map;
 
 public interface AmazonService {
     Map<String, String> analyzeDocSync(MultipartFile sourceDoc);
-    boolean analyzeDocAsync(MultipartFile sourceDoc);
+    AnalysisJob analyzeDocAsync(MultipartFile sourceDoc);
 }
@@ -1,130 +1,324 @@
 package ethan.entelect.textract.demo.services;
 
-import ethan.entelect.textract.demo.util.KeyValueSet;
-import ethan.entelect.textract.demo.util.TextractDocument;
+import ethan.entelect.textract.demo.util.DocumentHash;
+import ethan.entelect.textract.demo.util.FormExtractor;
+import ethan.entelect.textract.demo.util.Page;
+import ethan.entelect.textract.demo.util.SingleFlight;
+import ethan.entelect.textract.demo.util.TextractDocumentBuilder;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import lombok.Getter;
 import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.SdkBytes;
-import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
-import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 import software.amazon.awssdk.services.textract.TextractClient;
 import software.amazon.awssdk.services.textract.model.*;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 @Getter
 @Setter
 @Service
+@ConditionalOnProperty(name = "textract.sdk.mode", havingValue = "sync", matchIfMissing = true)
 public class AmazonServiceImp implements AmazonService {
+    private static final Logger log = LoggerFactory.getLogger(AmazonServiceImp.class);
+
     private final TextractClient textractClient;
     private final S3Client s3Client;
+    private final JobCompletionSource jobCompletionSource;
+    private final JobRegistry jobRegistry;
+    private final AnalysisResultCache resultCache;
+    private final DocumentSearchIndex searchIndex;
+    private final S3DocumentUploader documentUploader;
+    private final AnalysisMetrics metrics;
+    private final AnalysisTracing tracing;
+    private final Executor uploadExecutor;
+    private final Executor analysisExecutor;
+    private final Executor parseExecutor;
 
-    public AmazonServiceImp(TextractClient textractClient, S3Client s3Client) {
+    public AmazonServiceImp(TextractClient textractClient, S3Client s3Client, JobCompletionSource jobCompletionSource, JobRegistry jobRegistry,
+                            AnalysisResultCache resultCache, DocumentSearchIndex searchIndex, S3DocumentUploader documentUploader, AnalysisMetrics metrics,
+                            AnalysisTracing tracing, Executor uploadExecutor, Executor analysisExecutor, Executor parseExecutor) {
         this.textractClient = textractClient;
         this.s3Client = s3Client;
+        this.jobCompletionSource = jobCompletionSource;
+        this.jobRegistry = jobRegistry;
+        this.resultCache = resultCache;
+        this.searchIndex = searchIndex;
+        this.documentUploader = documentUploader;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        this.uploadExecutor = uploadExecutor;
+        this.analysisExecutor = analysisExecutor;
+        this.parseExecutor = parseExecutor;
     }
 
     @Value("${cloud.aws.bucket.name}")
     private String BUCKET_NAME;
 
+    @Value("${textract.executor.retry-after-seconds:30}")
+    private long retryAfterSeconds;
+
+    private static final List<FeatureType> SYNC_FEATURE_TYPES = List.of(FeatureType.FORMS);
+    private static final List<FeatureType> ASYNC_FEATURE_TYPES = List.of(FeatureType.TABLES, FeatureType.FORMS);
+
+    private final SingleFlight<String, Map<String, String>> inFlightSync = new SingleFlight<>();
+    private final SingleFlight<String, Map<String, String>> inFlightAsync = new SingleFlight<>();
+
     @Override
     public Map<String, String> analyzeDocSync(MultipartFile sourceDoc) {
+        Span document = tracing.start("textract.document");
+        document.tag(AnalysisTracing.MODE, "sync");
+        document.tag(AnalysisTracing.DOCUMENT_BYTES, String.valueOf(sourceDoc.getSize()));
+        Tracer.SpanInScope scope = tracing.scope(document);
         try {
-            SdkBytes sourceBytes = SdkBytes.fromInputStream(sourceDoc.getInputStream());
+            // AnalyzeDocument takes the document inline, so read it once at its known size and hand the array over without another copy.
+            byte[] content = sourceDoc.getBytes();
+            String cacheKey = AnalysisResultCache.key(DocumentHash.sha256(content), SYNC_FEATURE_TYPES);
+            Map<String, String> cached = resultCache.get(cacheKey);
+            if (cached != null) {
+                document.tag(AnalysisTracing.CACHE, "hit");
+                return cached;
+            }
 
-            // Get the input Document object as bytes
-            Document myDoc = Document.builder()
-                    .bytes(sourceBytes)
-                    .build();
+            // Identical documents submitted while one is already being analysed wait for that analysis instead.
+            AtomicBoolean leader = new AtomicBoolean();
+            try {
+                return inFlightSync.execute(cacheKey, () -> {
+                    leader.set(true);
+                    document.tag(AnalysisTracing.CACHE, "miss");
+                    SdkBytes sourceBytes = SdkBytes.fromByteArrayUnsafe(content);
 
-            List<FeatureType> featureTypes = new ArrayList<FeatureType>();
-            featureTypes.add(FeatureType.FORMS);
+                    // Get the input Document object as bytes
+                    Document myDoc = Document.builder()
+                            .bytes(sourceBytes)
+                            .build();
 
-            AnalyzeDocumentRequest analyzeDocumentRequest = AnalyzeDocumentRequest.builder()
-                    .featureTypes(featureTypes)
-                    .document(myDoc)
-                    .build();
+                    AnalyzeDocumentRequest analyzeDocumentRequest = AnalyzeDocumentRequest.builder()
+                            .featureTypes(SYNC_FEATURE_TYPES)
+                            .document(myDoc)
+                            .build();
 
-            AnalyzeDocumentResponse analyzeDocument = textractClient.analyzeDocument(analyzeDocumentRequest);
-            List<Block> docInfo = analyzeDocument.blocks();
+                    Timer.Sample sample = metrics.start();
+                    AnalyzeDocumentResponse analyzeDocument;
+                    try {
+                        analyzeDocument = textractClient.analyzeDocument(analyzeDocumentRequest);
+                        metrics.analyzedSync(sample, null);
+                    } catch (RuntimeException e) {
+                        metrics.analyzedSync(sample, e);
+                        throw e;
+                    }
+                    List<Block> docInfo = analyzeDocument.blocks();
+                    metrics.documentPage(docInfo.size());
+                    document.tag(AnalysisTracing.PAGES, String.valueOf(analyzeDocument.documentMetadata().pages()));
+                    document.tag(AnalysisTracing.BLOCKS, String.valueOf(docInfo.size()));
 
-            parseBlocksForFormData(docInfo);
-            return null;
-        } catch (TextractException | IOException e) {
-            System.out.println("Yikes file broke");
-            System.out.println(e);
+                    Map<String, String> formData = tracing.trace(document, "textract.parse", span -> parsePage(span, 1, docInfo));
+                    resultCache.put(cacheKey, formData, docInfo);
+                    searchIndex.add(cacheKey, formData, docInfo);
+                    return formData;
+                });
+            } finally {
+                if (!leader.get()) document.tag(AnalysisTracing.CACHE, "shared");
+            }
+        } catch (TextractException | CompletionException | IOException e) {
+            log.warn("Synchronous analysis failed", e);
+            document.error(e);
             return null;
+        } finally {
+            scope.close();
+            document.end();
         }
     }
 
     @Override
-    public boolean analyzeDocAsync(MultipartFile sourceDoc) {
+    public AnalysisJob analyzeDocAsync(MultipartFile sourceDoc) {
+        Span document = tracing.start("textract.document");
+        document.tag(AnalysisTracing.MODE, "async");
+        document.tag(AnalysisTracing.DOCUMENT_BYTES, String.valueOf(sourceDoc.getSize()));
+        Path stagedDoc;
         try {
-            //upload to s3
-            System.out.println("Uploading...");
-            String docKey = uploadDocToS3(sourceDoc);
-            if (docKey == null) return false;
-            System.out.println("Done.");
-            continueDocAnalyzeAsync(docKey);
-            return true;
-        } catch (Exception e) {
-            System.out.println(e);
-            return false;
+            // The multipart temp file is removed when the request ends, so it has to be moved before handing off.
+            stagedDoc = documentUploader.stage(sourceDoc);
+        } catch (IOException e) {
+            log.warn("Could not stage {}", sourceDoc.getOriginalFilename(), e);
+            AnalysisTracing.end(document, e);
+            return null;
+        }
+
+        AnalysisJob job = jobRegistry.create();
+        document.tag(AnalysisTracing.ANALYSIS_ID, job.getId());
+        CompletableFuture<Map<String, String>> analysis;
+        try {
+            analysis = CompletableFuture.supplyAsync(() -> {
+                        job.running();
+                        try {
+                            return AnalysisResultCache.key(DocumentHash.sha256(stagedDoc), ASYNC_FEATURE_TYPES);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, uploadExecutor)
+                    .thenCompose(cacheKey -> analyzeStagedDoc(stagedDoc, cacheKey, document));
+        } catch (RejectedExecutionException e) {
+            documentUploader.discard(stagedDoc);
+            jobRegistry.remove(job.getId());
+            AnalysisTracing.end(document, e);
+            throw new AnalysisRejectedException("upload", retryAfterSeconds, e);
+        }
+
+        analysis.whenComplete((formData, e) -> {
+            AnalysisTracing.end(document, e);
+            if (e != null) {
+                log.warn("Analysis {} failed", job.getId(), e);
+                documentUploader.discard(stagedDoc);
+                job.failed(e instanceof CompletionException ? e.getCause() : e);
+            } else {
+                job.addResult(formData);
+                job.succeeded();
+            }
+        });
+        return job;
+    }
+
+    private CompletableFuture<Map<String, String>> analyzeStagedDoc(Path stagedDoc, String cacheKey, Span document) {
+        Map<String, String> cached = resultCache.get(cacheKey);
+        if (cached != null) {
+            document.tag(AnalysisTracing.CACHE, "hit");
+            documentUploader.discard(stagedDoc);
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        // Identical documents submitted while one is already being analysed share that analysis.
+        AtomicBoolean leader = new AtomicBoolean();
+        CompletableFuture<Map<String, String>> analysis = inFlightAsync.submit(cacheKey, () -> {
+            leader.set(true);
+            return uploadAndAnalyze(stagedDoc, cacheKey, document);
+        });
+        document.tag(AnalysisTracing.CACHE, leader.get() ? "miss" : "shared");
+        if (!leader.get()) {
+            log.debug("Joining in-flight analysis of {}", cacheKey);
+            documentUploader.discard(stagedDoc);
+        }
+        return analysis;
+    }
+
+    private CompletableFuture<Map<String, String>> uploadAndAnalyze(Path stagedDoc, String cacheKey, Span document) {
+        String docKey = UUID.randomUUID().toString() + ".pdf";
+        //upload to s3
+        log.debug("Uploading {}", docKey);
+        if (!uploadDocToS3(docKey, stagedDoc, document)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Upload of " + docKey + " failed"));
         }
+        log.debug("Uploaded {}", docKey);
+        return CompletableFuture.supplyAsync(() -> continueDocAnalyzeAsync(docKey, cacheKey, document), analysisExecutor)
+                .thenCompose(formData -> formData);
     }
 
-    @Async
-    private void continueDocAnalyzeAsync(String docKey){
+    private CompletableFuture<Map<String, String>> continueDocAnalyzeAsync(String docKey, String cacheKey, Span document) {
         //start analyse
-        System.out.println("Starting analysis...");
-        String jobId = startS3DocAnalyze(docKey);
-        if (jobId == null) return;
-        System.out.println("Started analysis.");
-        //get analysis
-        System.out.println("Getting report...");
-        List<Block> docInfo = getS3DocAnalyze(jobId);
-        if (docInfo == null) return;
-        System.out.println("Report collected.");
-        //print results
-        System.out.println("Parsing blocks...");
-        parseBlocksForFormData(docInfo);
-        System.out.println("Parsing done.");
-        //delete file
-        System.out.println("Removing file...");
-        boolean deleteSuccess = deleteDocOnS3(docKey);
-        if (deleteSuccess) {
-            System.out.println("File removed.");
-        } else {
-            System.out.println("File not removed.");
+        log.debug("Starting analysis of {}", docKey);
+        String jobId = startS3DocAnalyze(docKey, document);
+        if (jobId == null) {
+            deleteDocOnS3(docKey, document);
+            return CompletableFuture.failedFuture(new IllegalStateException("Analysis of " + docKey + " could not be started"));
         }
+        //wait for the job without holding this thread, then parse each page as soon as it is complete
+        log.debug("Started job {} for {}, waiting for it to finish", jobId, docKey);
+        return tracing.traceAsync(document, "textract.job.wait", span -> {
+                    span.tag(AnalysisTracing.JOB_ID, jobId);
+                    return jobCompletionSource.track(jobId);
+                })
+                .thenComposeAsync(firstPage -> {
+                    log.debug("Job {} finished, collecting results", jobId);
+                    AnalysisResultCache.BlockSink blockSink = resultCache.openBlockSink(cacheKey);
+                    DocumentSearchIndex.Pending searchEntry = searchIndex.begin(cacheKey);
+                    // Pages are parsed concurrently but merged in page order, so duplicate keys number the same way every time.
+                    List<CompletableFuture<Map<String, String>>> parses = new ArrayList<>();
+                    try {
+                        tracing.trace(document, "textract.results", span -> {
+                            getS3DocAnalyze(jobId, firstPage, span, document, page -> {
+                                if (blockSink != null) blockSink.write(page.GetBlocks());
+                                searchEntry.addPage(page.GetBlocks());
+                                metrics.documentPage(page.GetBlocks().size());
+                                parses.add(CompletableFuture.supplyAsync(() -> tracing.trace(document, "textract.parse",
+                                        parse -> parsePage(parse, page.GetPageNumber(), page.GetBlocks())), parseExecutor));
+                            });
+                            return null;
+                        });
+                    } catch (RuntimeException e) {
+                        if (blockSink != null) blockSink.abort();
+                        throw e;
+                    }
+                    log.debug("Job {} results collected", jobId);
+                    return CompletableFuture.allOf(parses.toArray(new CompletableFuture<?>[0]))
+                            .thenApply(ignored -> {
+                                Map<String, String> formData = new LinkedHashMap<>();
+                                for (CompletableFuture<Map<String, String>> parse : parses) FormExtractor.merge(formData, parse.join());
+                                return formData;
+                            })
+                            .whenComplete((formData, e) -> {
+                                if (e != null) {
+                                    if (blockSink != null) blockSink.abort();
+                                    return;
+                                }
+                                if (blockSink != null) blockSink.commit();
+                                resultCache.put(cacheKey, formData);
+                                searchEntry.commit(formData);
+                            });
+                }, analysisExecutor)
+                .whenCompleteAsync((ignored, e) -> {
+                    //delete file
+                    deleteDocOnS3(docKey, document);
+                }, analysisExecutor);
+    }
+
+    private Map<String, String> parsePage(Span span, int pageNumber, List<Block> blocks) {
+        Map<String, String> formData = metrics.parse(blocks);
+        span.tag(AnalysisTracing.PAGE, String.valueOf(pageNumber));
+        span.tag(AnalysisTracing.BLOCKS, String.valueOf(blocks.size()));
+        span.tag(AnalysisTracing.FIELDS, String.valueOf(formData.size()));
+        return formData;
     }
 
-    private String uploadDocToS3(MultipartFile sourceDoc) {
+    private boolean uploadDocToS3(String key, Path stagedDoc, Span document) {
+        Span span = tracing.start(document, "textract.upload");
+        Tracer.SpanInScope scope = tracing.scope(span);
         try {
-            String key = UUID.randomUUID().toString() + ".pdf";
-            PutObjectRequest objectRequest = PutObjectRequest.builder()
-                    .bucket(BUCKET_NAME)
-                    .key(key)
-                    .build();
-            PutObjectResponse response = s3Client.putObject(objectRequest, RequestBody.fromBytes(sourceDoc.getBytes()));
-            return key;
+            documentUploader.upload(BUCKET_NAME, key, stagedDoc);
+            return true;
 
         } catch (Exception e) {
-            System.out.println(e);
-            return null;
+            log.warn("Upload of {} failed", key, e);
+            span.error(e);
+            return false;
+        } finally {
+            scope.close();
+            documentUploader.discard(stagedDoc);
+            span.end();
         }
     }
 
-    private boolean deleteDocOnS3(String docKey) {
+    private boolean deleteDocOnS3(String docKey, Span document) {
+        Timer.Sample sample = metrics.start();
+        Span span = tracing.start(document, "textract.delete");
+        Tracer.SpanInScope scope = tracing.scope(span);
         try {
             DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
                     .bucket(BUCKET_NAME)
@@ -132,17 +326,24 @@ public class AmazonServiceImp implements AmazonService {
                     .build();
 
             s3Client.deleteObject(deleteObjectRequest);
+            metrics.deleted(sample, null);
             return true;
         } catch (Exception e) {
-            System.out.println(e);
+            log.warn("Document {} was not removed from S3", docKey, e);
+            metrics.deleted(sample, e);
+            span.error(e);
             return false;
+        } finally {
+            scope.close();
+            span.end();
         }
     }
 
-    private String startS3DocAnalyze(String docKey) {
+    private String startS3DocAnalyze(String docKey, Span document) {
+        Timer.Sample sample = metrics.start();
+        Span span = tracing.start(document, "textract.job.start");
+        Tracer.SpanInScope scope = tracing.scope(span);
         try {
-            List<FeatureType> myList = List.of(FeatureType.TABLES, FeatureType.FORMS);
-
             S3Object s3Object = S3Object.builder()
                     .bucket(BUCKET_NAME)
                     .name(docKey)
@@ -154,115 +355,64 @@ public class AmazonServiceImp implements AmazonService {
 
             StartDocumentAnalysisRequest documentAnalysisRequest = StartDocumentAnalysisRequest.builder()
                     .documentLocation(location)
-                    .featureTypes(myList)
+                    .featureTypes(ASYNC_FEATURE_TYPES)
+                    .notificationChannel(jobCompletionSource.getNotificationChannel())
                     .build();
 
             StartDocumentAnalysisResponse response = textractClient.startDocumentAnalysis(documentAnalysisRequest);
+            metrics.jobStarted(sample, null);
+            span.tag(AnalysisTracing.JOB_ID, response.jobId());
+            document.tag(AnalysisTracing.JOB_ID, response.jobId());
 
             // Get the job ID
             return response.jobId();
 
         } catch (TextractException e) {
-            System.err.println(e);
+            log.warn("Analysis of {} could not be started", docKey, e);
+            metrics.jobStarted(sample, e);
+            span.error(e);
             return null;
+        } catch (RuntimeException e) {
+            metrics.jobStarted(sample, e);
+            span.error(e);
+            throw e;
+        } finally {
+            scope.close();
+            span.end();
         }
     }
 
-    private List<Block> getS3DocAnalyze(String jobId) {
-        int index = 0;
+    private void getS3DocAnalyze(String jobId, GetDocumentAnalysisResponse firstPage, Span span, Span document, Consumer<Page> pageConsumer) {
         int pageIndex = 1;
-        String nextToken = null;
-        String status = "";
-        List<Block> blocks = new ArrayList<>();
-        List<GetDocumentAnalysisResponse> responses = new ArrayList<>();
-        try {
-            while (true) {
-                GetDocumentAnalysisRequest analysisRequest = GetDocumentAnalysisRequest.builder()
-                        .jobId(jobId)
-                        .maxResults(1000)
-                        .nextToken(nextToken)
-                        .build();
-
-                GetDocumentAnalysisResponse response = textractClient.getDocumentAnalysis(analysisRequest);
-                status = response.jobStatus().toString();
-
-                if (status.compareTo("SUCCEEDED") == 0) {
-                    blocks.addAll(response.blocks());
-                    responses.add(response);
-                    if (response.nextToken() != null){
-                        nextToken = response.nextToken();
-                        System.out.println("Page " + pageIndex + " collected.");
-                        pageIndex++;
-                        index = 0;
-                    }else {
-                        TextractDocument textractDocument = new TextractDocument(responses);
-                        return blocks;
-                    }
-                } else {
-                    System.out.println(index + " status is: " + status);
-                    Thread.sleep(1000);
-                }
-                index++;
-            }
-        } catch (InterruptedException e) {
-            System.out.println(e.getMessage());
-            return null;
-        }
-    }
-
-    private void parseBlocksForFormData(List<Block> blocks) {
-        Map<String, Block> words = new HashMap<>();
-        Map<String, KeyValueSet> keyValueSet = new HashMap<>();
-
-        for (Block block : blocks) {
-            if (block.blockType().equals(BlockType.WORD)) {
-                words.put(block.id(), block);
-            } else if (block.blockType().equals(BlockType.KEY_VALUE_SET)) {
-                if (block.entityTypes().contains(EntityType.KEY)) {
-                    Optional<Relationship> relationshipsOfBlockOfTypeValue = block.relationships().stream().filter(relationship -> relationship.type().equals(RelationshipType.VALUE)).findFirst();
-                    if (relationshipsOfBlockOfTypeValue.isEmpty()) continue;
-                    String id = relationshipsOfBlockOfTypeValue.get().ids().get(0);
-                    if (keyValueSet.containsKey(id)) {
-                        keyValueSet.get(id).setKey(block);
-                    } else {
-                        keyValueSet.put(id, KeyValueSet.builder().key(block).build());
-                    }
-                } else if (block.entityTypes().contains(EntityType.VALUE)) {
-                    if (keyValueSet.containsKey(block.id())) {
-                        keyValueSet.get(block.id()).setValue(block);
-                    } else {
-                        keyValueSet.put(block.id(), KeyValueSet.builder().value(block).build());
-                    }
-                }
-            }
-        }
+        int blocks = 0;
+        TextractDocumentBuilder documentBuilder = new TextractDocumentBuilder(pageConsumer);
+        GetDocumentAnalysisResponse response = firstPage;
+        while (true) {
+            metrics.resultPageReceived();
+            blocks += response.blocks().size();
+            documentBuilder.Add(response);
+            if (response.nextToken() == null) break;
+            log.debug("Job {} result page {} collected", jobId, pageIndex);
+            pageIndex++;
 
-        for (KeyValueSet formKeyValueSet : keyValueSet.values()) {
-            if (!formKeyValueSet.isComplete()) continue;
-            List<Relationship> relationshipsOfKeyOfTypeChild = formKeyValueSet.getKey().relationships().stream().filter(relationship -> relationship.type().equals(RelationshipType.CHILD)).toList();
-            if (!relationshipsOfKeyOfTypeChild.isEmpty()) {
-                relationshipsOfKeyOfTypeChild.forEach(child -> {
-                    child.ids().forEach(childId -> {
-                        formKeyValueSet.addKeyWord(words.get(childId));
-                    });
-                });
-            }
-            List<Relationship> relationshipsOfValueOfTypeChild = formKeyValueSet.getValue().relationships().stream().filter(relationship -> relationship.type().equals(RelationshipType.CHILD)).toList();
-            if (!relationshipsOfValueOfTypeChild.isEmpty()) {
-                relationshipsOfValueOfTypeChild.forEach(child -> {
-                    child.ids().forEach(childId -> {
-                        formKeyValueSet.addValueWord(words.get(childId));
-                    });
-                });
+            GetDocumentAnalysisRequest analysisRequest = GetDocumentAnalysisRequest.builder()
+                    .jobId(jobId)
+                    .maxResults(1000)
+                    .nextToken(response.nextToken())
+                    .build();
+            Timer.Sample sample = metrics.start();
+            try {
+                response = textractClient.getDocumentAnalysis(analysisRequest);
+                metrics.resultPageFetched(sample, null);
+            } catch (RuntimeException e) {
+                metrics.resultPageFetched(sample, e);
+                throw e;
             }
         }
-
-        for (KeyValueSet formKeyValueSet : keyValueSet.values()) {
-            System.out.print("[");
-            System.out.print(formKeyValueSet.keyWordsToString());
-            System.out.print(": ");
-            System.out.print(formKeyValueSet.valueWordsToString());
-            System.out.println("]");
-        }
+        documentBuilder.Finish();
+        span.tag(AnalysisTracing.RESULT_PAGES, String.valueOf(pageIndex));
+        span.tag(AnalysisTracing.BLOCKS, String.valueOf(blocks));
+        document.tag(AnalysisTracing.PAGES, String.valueOf(response.documentMetadata().pages()));
+        document.tag(AnalysisTracing.BLOCKS, String.valueOf(blocks));
     }
 }
@@ -0,0 +1,65 @@
+package ethan.entelect.textract.demo.services;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter
+public class AnalysisJob {
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+
+    private final String id;
+    private final Instant createdAt;
+    private volatile Status status;
+    private volatile Instant completedAt;
+    private volatile String error;
+    private final Map<String, String> result = new LinkedHashMap<>();
+
+    AnalysisJob(String id) {
+        this.id = id;
+        this.createdAt = Instant.now();
+        this.status = Status.QUEUED;
+    }
+
+    void running() {
+        this.status = Status.RUNNING;
+    }
+
+    void succeeded() {
+        this.completedAt = Instant.now();
+        this.status = Status.SUCCEEDED;
+    }
+
+    void failed(Throwable e) {
+        this.error = e == null ? null : e.toString();
+        this.completedAt = Instant.now();
+        this.status = Status.FAILED;
+    }
+
+    synchronized void addResult(Map<String, String> formData) {
+        result.putAll(formData);
+    }
+
+    public synchronized Map<String, String> getResult() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(result));
+    }
+
+    public boolean isDone() {
+        return status == Status.SUCCEEDED || status == Status.FAILED;
+    }
+
+    public Map<String, String> toStatusMap() {
+        Map<String, String> statusMap = new LinkedHashMap<>();
+        statusMap.put("jobId", id);
+        statusMap.put("status", status.toString());
+        statusMap.put("createdAt", createdAt.toString());
+        if (completedAt != null) statusMap.put("completedAt", completedAt.toString());
+        if (error != null) statusMap.put("error", error);
+        return statusMap;
+    }
+}
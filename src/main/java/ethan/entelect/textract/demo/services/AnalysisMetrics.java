@@ -0,0 +1,165 @@
+package ethan.entelect.textract.demo.services;
+
+import ethan.entelect.textract.demo.util.FormExtractor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters for each stage of the analysis pipeline, so latency under load can be attributed to upload, job
+ * start, waiting on Textract, fetching result pages, parsing or cleanup. Stage timers publish histograms for
+ * percentile queries; meters whose tags vary per call are looked up by name, which Micrometer caches.
+ */
+@Component
+public class AnalysisMetrics {
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+
+    private final MeterRegistry registry;
+    private final DistributionSummary uploadBytes;
+    private final DistributionSummary pollsPerJob;
+    private final Counter resultPages;
+    private final DistributionSummary pageBlocks;
+    private final Timer parse;
+    private final Counter parsedPages;
+    private final Counter parsedBlocks;
+    private final Counter parsedFields;
+
+    public AnalysisMetrics(MeterRegistry registry, JobRegistry jobRegistry) {
+        this.registry = registry;
+        this.uploadBytes = DistributionSummary.builder("textract.upload.size")
+                .description("Size of documents uploaded to S3")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.pollsPerJob = DistributionSummary.builder("textract.job.polls.per.job")
+                .description("GetDocumentAnalysis status polls made before a job finished")
+                .register(registry);
+        this.resultPages = Counter.builder("textract.results.pages")
+                .description("GetDocumentAnalysis result pages received")
+                .register(registry);
+        this.pageBlocks = DistributionSummary.builder("textract.page.blocks")
+                .description("Blocks per document page")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.parse = Timer.builder("textract.parse")
+                .description("Extracting form fields from the blocks of one analysis response or result page")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.parsedPages = Counter.builder("textract.parse.pages")
+                .description("PAGE blocks read by form extraction")
+                .register(registry);
+        this.parsedBlocks = Counter.builder("textract.parse.blocks")
+                .description("Blocks read by form extraction")
+                .register(registry);
+        this.parsedFields = Counter.builder("textract.parse.fields")
+                .description("Form fields extracted")
+                .register(registry);
+
+        Gauge.builder("textract.jobs.registered", jobRegistry, JobRegistry::size)
+                .description("/kvs jobs held by the job registry, running or awaiting collection")
+                .register(registry);
+    }
+
+    /**
+     * Publishes pool, queue and task timing meters for an executor created outside Spring, tagged with the
+     * given name; the stage executor beans are instrumented by Spring Boot already.
+     */
+    public ExecutorService monitor(ExecutorService executor, String name) {
+        return ExecutorServiceMetrics.monitor(registry, executor, name);
+    }
+
+    public ScheduledExecutorService monitor(ScheduledExecutorService executor, String name) {
+        return ExecutorServiceMetrics.monitor(registry, executor, name);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void uploaded(Timer.Sample sample, String mode, long bytes, Throwable error) {
+        sample.stop(stageTimer("textract.upload", "Uploading a document to S3", error, "mode", mode));
+        if (error == null) uploadBytes.record(bytes);
+    }
+
+    public void jobStarted(Timer.Sample sample, Throwable error) {
+        sample.stop(stageTimer("textract.job.start", "StartDocumentAnalysis call", error));
+    }
+
+    /**
+     * One GetDocumentAnalysis status poll, by what it found: in_progress, succeeded, failed, throttled or error.
+     */
+    public void jobPolled(String outcome) {
+        registry.counter("textract.job.polls", "outcome", outcome).increment();
+    }
+
+    /**
+     * A job reached a terminal status, the given time after it was started.
+     */
+    public void jobFinished(long startedNanos, int polls, String status) {
+        Timer.builder("textract.job.completion")
+                .description("Time from starting a Textract job until it reached a terminal status")
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+        if (polls > 0) pollsPerJob.record(polls);
+    }
+
+    public void resultPageReceived() {
+        resultPages.increment();
+    }
+
+    public void resultPageFetched(Timer.Sample sample, Throwable error) {
+        sample.stop(stageTimer("textract.results.fetch", "Fetching one further page of GetDocumentAnalysis results", error));
+    }
+
+    public void documentPage(int blocks) {
+        pageBlocks.record(blocks);
+    }
+
+    /**
+     * Extracts the form fields of freshly analysed blocks. Results re-parsed from the cache do not go through here,
+     * so the counters only cover documents Textract analysed.
+     */
+    public Map<String, String> parse(List<Block> blocks) {
+        Map<String, String> formData = parse.record(() -> FormExtractor.extract(blocks));
+        int pages = 0;
+        for (Block block : blocks) {
+            if (block.blockType() == BlockType.PAGE) pages++;
+        }
+        parsedPages.increment(pages);
+        parsedBlocks.increment(blocks.size());
+        parsedFields.increment(formData.size());
+        return formData;
+    }
+
+    public void deleted(Timer.Sample sample, Throwable error) {
+        sample.stop(stageTimer("textract.delete", "Deleting an analysed document from S3", error));
+    }
+
+    public void analyzedSync(Timer.Sample sample, Throwable error) {
+        sample.stop(stageTimer("textract.analyze.sync", "AnalyzeDocument call", error));
+    }
+
+    private Timer stageTimer(String name, String description, Throwable error, String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .tag("outcome", error == null ? SUCCESS : FAILURE)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
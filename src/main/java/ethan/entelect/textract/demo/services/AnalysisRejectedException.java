@@ -0,0 +1,16 @@
+package ethan.entelect.textract.demo.services;
+
+public class AnalysisRejectedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public AnalysisRejectedException(String stage, long retryAfterSeconds, Throwable cause) {
+        super("The " + stage + " queue is full, retry in " + retryAfterSeconds + "s", cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
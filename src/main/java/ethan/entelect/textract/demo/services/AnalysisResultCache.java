@@ -0,0 +1,175 @@
+package ethan.entelect.textract.demo.services;
+
+import ethan.entelect.textract.demo.util.BlockCodec;
+import ethan.entelect.textract.demo.util.FormExtractor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.FeatureType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Results of previous analyses keyed by document content hash and requested feature types.
+ * The memory tier is an LRU bounded by entry count and total text size; the optional disk tier keeps the
+ * encoded blocks so results survive restarts and memory evictions, and are re-parsed page by page on a hit.
+ */
+@Component
+public class AnalysisResultCache {
+    private static final Logger log = LoggerFactory.getLogger(AnalysisResultCache.class);
+
+    private final LinkedHashMap<String, Map<String, String>> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxEntries;
+    private final long maxChars;
+    private final Path diskDir;
+    private long chars;
+
+    public AnalysisResultCache(@Value("${textract.cache.memory.max-entries:1000}") int maxEntries,
+                               @Value("${textract.cache.memory.max-chars:16777216}") long maxChars,
+                               @Value("${textract.cache.disk.dir:}") String diskDir) throws IOException {
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+        if (diskDir == null || diskDir.isBlank()) {
+            this.diskDir = null;
+        } else {
+            this.diskDir = Files.createDirectories(Paths.get(diskDir));
+        }
+    }
+
+    public static String key(String contentHash, Collection<FeatureType> featureTypes) {
+        return contentHash + "-" + featureTypes.stream().map(FeatureType::toString).sorted().collect(Collectors.joining("+"));
+    }
+
+    public Map<String, String> get(String key) {
+        synchronized (memory) {
+            Map<String, String> result = memory.get(key);
+            if (result != null) return result;
+        }
+        if (diskDir == null) return null;
+
+        Path file = diskDir.resolve(key + ".blocks");
+        if (!Files.exists(file)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            Map<String, String> result = Collections.unmodifiableMap(FormExtractor.extractPages(BlockCodec.readAll(in)));
+            putInMemory(key, result);
+            return result;
+        } catch (IOException e) {
+            log.warn("Could not read cached blocks for {}", key, e);
+            return null;
+        }
+    }
+
+    public void put(String key, Map<String, String> result) {
+        putInMemory(key, Collections.unmodifiableMap(new LinkedHashMap<>(result)));
+    }
+
+    public void put(String key, Map<String, String> result, List<Block> blocks) {
+        put(key, result);
+        BlockSink sink = openBlockSink(key);
+        if (sink != null) {
+            sink.write(blocks);
+            sink.commit();
+        }
+    }
+
+    /**
+     * @return a sink that persists the job's blocks as they arrive, or {@code null} when the disk tier is disabled
+     */
+    public BlockSink openBlockSink(String key) {
+        if (diskDir == null) return null;
+        try {
+            return new BlockSink(key);
+        } catch (IOException e) {
+            log.warn("Could not open the block cache for {}", key, e);
+            return null;
+        }
+    }
+
+    private void putInMemory(String key, Map<String, String> result) {
+        long weight = weigh(result);
+        if (weight > maxChars) return;
+        synchronized (memory) {
+            Map<String, String> previous = memory.put(key, result);
+            if (previous != null) chars -= weigh(previous);
+            chars += weight;
+            Iterator<Map.Entry<String, Map<String, String>>> eldest = memory.entrySet().iterator();
+            while ((memory.size() > maxEntries || chars > maxChars) && eldest.hasNext()) {
+                chars -= weigh(eldest.next().getValue());
+                eldest.remove();
+            }
+        }
+    }
+
+    private static long weigh(Map<String, String> result) {
+        long weight = 0;
+        for (Map.Entry<String, String> entry : result.entrySet()) {
+            weight += entry.getKey().length() + entry.getValue().length();
+        }
+        return weight;
+    }
+
+    public class BlockSink {
+        private final Path target;
+        private final Path temp;
+        private final DataOutputStream out;
+        private boolean failed;
+
+        private BlockSink(String key) throws IOException {
+            this.target = diskDir.resolve(key + ".blocks");
+            this.temp = Files.createTempFile(diskDir, key, ".partial");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)));
+            BlockCodec.writeHeader(out);
+        }
+
+        public synchronized void write(List<Block> blocks) {
+            if (failed) return;
+            try {
+                for (Block block : blocks) BlockCodec.write(out, block);
+            } catch (IOException e) {
+                log.warn("Could not write blocks to {}", temp, e);
+                failed = true;
+            }
+        }
+
+        public synchronized void commit() {
+            if (failed) {
+                abort();
+                return;
+            }
+            try {
+                BlockCodec.writeEnd(out);
+                out.close();
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.warn("Could not commit cached blocks to {}", target, e);
+                abort();
+            }
+        }
+
+        public synchronized void abort() {
+            try {
+                out.close();
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                log.warn("Could not remove {}", temp, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package ethan.entelect.textract.demo.services;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Spans for one document's way through the pipeline. The document span is opened where the request is
+ * accepted and each stage (upload, job start, waiting on the job, fetching results, parsing each page,
+ * delete) is a child of it, passed along explicitly because the stages hop between executors.
+ * SDK calls made while a stage span is in scope get their own child span from {@link SdkCallTracing}.
+ */
+@Component
+public class AnalysisTracing {
+    public static final String ANALYSIS_ID = "textract.analysis.id";
+    public static final String MODE = "textract.mode";
+    public static final String CACHE = "textract.cache";
+    public static final String DOCUMENT_BYTES = "textract.document.bytes";
+    public static final String JOB_ID = "textract.job.id";
+    public static final String JOB_POLLS = "textract.job.polls";
+    public static final String JOB_STATUS = "textract.job.status";
+    public static final String PAGE = "textract.page";
+    public static final String PAGES = "textract.pages";
+    public static final String RESULT_PAGES = "textract.result.pages";
+    public static final String BLOCKS = "textract.blocks";
+    public static final String FIELDS = "textract.fields";
+
+    private final Tracer tracer;
+
+    public AnalysisTracing(ObjectProvider<Tracer> tracer) {
+        this.tracer = tracer.getIfAvailable(() -> Tracer.NOOP);
+    }
+
+    /**
+     * Starts a span under whatever is current on this thread, normally the HTTP request.
+     */
+    public Span start(String name) {
+        return tracer.nextSpan().name(name).start();
+    }
+
+    public Span start(Span parent, String name) {
+        return parent == null ? start(name) : tracer.nextSpan(parent).name(name).start();
+    }
+
+    public Span current() {
+        return tracer.currentSpan();
+    }
+
+    public Tracer.SpanInScope scope(Span span) {
+        return tracer.withSpan(span);
+    }
+
+    /**
+     * Runs the call with the span current, so SDK calls it makes are recorded under that span.
+     */
+    public <T> T within(Span span, Supplier<T> call) {
+        if (span == null) return call.get();
+        Tracer.SpanInScope scope = tracer.withSpan(span);
+        try {
+            return call.get();
+        } finally {
+            scope.close();
+        }
+    }
+
+    public <T> T trace(Span parent, String name, Function<Span, T> stage) {
+        Span span = start(parent, name);
+        Tracer.SpanInScope scope = tracer.withSpan(span);
+        try {
+            return stage.apply(span);
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            scope.close();
+            span.end();
+        }
+    }
+
+    /**
+     * Like {@link #trace} for a stage that completes later; the span ends when the returned future does.
+     */
+    public <T> CompletableFuture<T> traceAsync(Span parent, String name, Function<Span, CompletableFuture<T>> stage) {
+        Span span = start(parent, name);
+        CompletableFuture<T> future;
+        Tracer.SpanInScope scope = tracer.withSpan(span);
+        try {
+            future = stage.apply(span);
+        } catch (RuntimeException e) {
+            scope.close();
+            end(span, e);
+            throw e;
+        }
+        scope.close();
+        return future.whenComplete((result, e) -> end(span, e));
+    }
+
+    public static void end(Span span, Throwable error) {
+        if (error != null) span.error(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+        span.end();
+    }
+}
@@ -0,0 +1,377 @@
+package ethan.entelect.textract.demo.services;
+
+import ethan.entelect.textract.demo.util.DocumentHash;
+import ethan.entelect.textract.demo.util.FormExtractor;
+import ethan.entelect.textract.demo.util.SingleFlight;
+import ethan.entelect.textract.demo.util.TextractDocumentBuilder;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.textract.TextractAsyncClient;
+import software.amazon.awssdk.services.textract.model.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link AmazonService} built on the async SDK clients. Upload, start, wait, page fetch and delete are chained
+ * as one CompletableFuture pipeline so no thread is held while a request is on the wire or a job is running.
+ */
+@Getter
+@Setter
+@Service
+@ConditionalOnProperty(name = "textract.sdk.mode", havingValue = "async")
+public class AsyncAmazonServiceImp implements AmazonService {
+    private static final Logger log = LoggerFactory.getLogger(AsyncAmazonServiceImp.class);
+
+    private final TextractAsyncClient textractAsyncClient;
+    private final S3AsyncClient s3AsyncClient;
+    private final JobCompletionSource jobCompletionSource;
+    private final JobRegistry jobRegistry;
+    private final AnalysisResultCache resultCache;
+    private final DocumentSearchIndex searchIndex;
+    private final S3DocumentUploader documentUploader;
+    private final AnalysisMetrics metrics;
+    private final AnalysisTracing tracing;
+    private final Executor uploadExecutor;
+    private final Executor parseExecutor;
+
+    public AsyncAmazonServiceImp(TextractAsyncClient textractAsyncClient, S3AsyncClient s3AsyncClient, JobCompletionSource jobCompletionSource,
+                                 JobRegistry jobRegistry, AnalysisResultCache resultCache, DocumentSearchIndex searchIndex, S3DocumentUploader documentUploader,
+                                 AnalysisMetrics metrics, AnalysisTracing tracing, Executor uploadExecutor, Executor parseExecutor) {
+        this.textractAsyncClient = textractAsyncClient;
+        this.s3AsyncClient = s3AsyncClient;
+        this.jobCompletionSource = jobCompletionSource;
+        this.jobRegistry = jobRegistry;
+        this.resultCache = resultCache;
+        this.searchIndex = searchIndex;
+        this.documentUploader = documentUploader;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        this.uploadExecutor = uploadExecutor;
+        this.parseExecutor = parseExecutor;
+    }
+
+    @Value("${cloud.aws.bucket.name}")
+    private String BUCKET_NAME;
+
+    @Value("${textract.executor.retry-after-seconds:30}")
+    private long retryAfterSeconds;
+
+    @Value("${textract.jobs.poll.initial-delay-ms:1000}")
+    private long initialDelayMs;
+
+    @Value("${textract.jobs.poll.max-delay-ms:20000}")
+    private long maxDelayMs;
+
+    @Value("${textract.jobs.poll.backoff-multiplier:1.5}")
+    private double backoffMultiplier;
+
+    @Value("${textract.jobs.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${textract.jobs.page-size:1000}")
+    private int pageSize;
+
+    private static final List<FeatureType> SYNC_FEATURE_TYPES = List.of(FeatureType.FORMS);
+    private static final List<FeatureType> ASYNC_FEATURE_TYPES = List.of(FeatureType.TABLES, FeatureType.FORMS);
+
+    private final SingleFlight<String, Map<String, String>> inFlight = new SingleFlight<>();
+
+    @Override
+    public Map<String, String> analyzeDocSync(MultipartFile sourceDoc) {
+        Span document = tracing.start("textract.document");
+        document.tag(AnalysisTracing.MODE, "sync");
+        document.tag(AnalysisTracing.DOCUMENT_BYTES, String.valueOf(sourceDoc.getSize()));
+        try {
+            byte[] content = sourceDoc.getBytes();
+            String cacheKey = AnalysisResultCache.key(DocumentHash.sha256(content), SYNC_FEATURE_TYPES);
+            Map<String, String> cached = resultCache.get(cacheKey);
+            if (cached != null) {
+                document.tag(AnalysisTracing.CACHE, "hit");
+                return cached;
+            }
+
+            AnalyzeDocumentRequest analyzeDocumentRequest = AnalyzeDocumentRequest.builder()
+                    .featureTypes(SYNC_FEATURE_TYPES)
+                    .document(Document.builder()
+                            .bytes(SdkBytes.fromByteArrayUnsafe(content))
+                            .build())
+                    .build();
+
+            return inFlight.submit(cacheKey, () -> {
+                document.tag(AnalysisTracing.CACHE, "miss");
+                Timer.Sample sample = metrics.start();
+                return tracing.within(document, () -> textractAsyncClient.analyzeDocument(analyzeDocumentRequest))
+                    .whenComplete((analyzeDocument, e) -> metrics.analyzedSync(sample, e))
+                    .thenApply(analyzeDocument -> {
+                        metrics.documentPage(analyzeDocument.blocks().size());
+                        document.tag(AnalysisTracing.PAGES, String.valueOf(analyzeDocument.documentMetadata().pages()));
+                        document.tag(AnalysisTracing.BLOCKS, String.valueOf(analyzeDocument.blocks().size()));
+                        Map<String, String> formData = tracing.trace(document, "textract.parse", span -> parsePage(span, 1, analyzeDocument.blocks()));
+                        resultCache.put(cacheKey, formData, analyzeDocument.blocks());
+                        searchIndex.add(cacheKey, formData, analyzeDocument.blocks());
+                        return formData;
+                    });
+            }).join();
+        } catch (CompletionException | IOException e) {
+            log.warn("Synchronous analysis failed", e);
+            document.error(e);
+            return null;
+        } finally {
+            document.end();
+        }
+    }
+
+    @Override
+    public AnalysisJob analyzeDocAsync(MultipartFile sourceDoc) {
+        Span document = tracing.start("textract.document");
+        document.tag(AnalysisTracing.MODE, "async");
+        document.tag(AnalysisTracing.DOCUMENT_BYTES, String.valueOf(sourceDoc.getSize()));
+        Path stagedDoc;
+        try {
+            // The multipart temp file is removed when the request ends, so it has to be moved before returning.
+            stagedDoc = documentUploader.stage(sourceDoc);
+        } catch (IOException e) {
+            log.warn("Could not stage {}", sourceDoc.getOriginalFilename(), e);
+            AnalysisTracing.end(document, e);
+            return null;
+        }
+
+        AnalysisJob job = jobRegistry.create();
+        document.tag(AnalysisTracing.ANALYSIS_ID, job.getId());
+        // Hashing is where new work is admitted, so it goes to the upload executor, which rejects rather than queueing without bound.
+        CompletableFuture<String> hashed;
+        try {
+            hashed = CompletableFuture.supplyAsync(() -> {
+                job.running();
+                try {
+                    return AnalysisResultCache.key(DocumentHash.sha256(stagedDoc), ASYNC_FEATURE_TYPES);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, uploadExecutor);
+        } catch (RejectedExecutionException e) {
+            documentUploader.discard(stagedDoc);
+            jobRegistry.remove(job.getId());
+            AnalysisTracing.end(document, e);
+            throw new AnalysisRejectedException("upload", retryAfterSeconds, e);
+        }
+        hashed.thenCompose(cacheKey -> {
+                    Map<String, String> cached = resultCache.get(cacheKey);
+                    if (cached != null) {
+                        document.tag(AnalysisTracing.CACHE, "hit");
+                        documentUploader.discard(stagedDoc);
+                        return CompletableFuture.completedFuture(cached);
+                    }
+                    // Identical documents submitted while one is already being analysed share that analysis.
+                    AtomicBoolean leader = new AtomicBoolean();
+                    CompletableFuture<Map<String, String>> analysis = inFlight.submit(cacheKey, () -> {
+                        leader.set(true);
+                        return analyzeStagedDoc(stagedDoc, cacheKey, document);
+                    });
+                    document.tag(AnalysisTracing.CACHE, leader.get() ? "miss" : "shared");
+                    if (!leader.get()) documentUploader.discard(stagedDoc);
+                    return analysis;
+                })
+                .whenComplete((formData, e) -> {
+                    AnalysisTracing.end(document, e);
+                    if (e != null) {
+                        log.warn("Analysis {} failed", job.getId(), e);
+                        documentUploader.discard(stagedDoc);
+                        job.failed(e instanceof CompletionException ? e.getCause() : e);
+                    } else {
+                        job.addResult(formData);
+                        job.succeeded();
+                    }
+                });
+        return job;
+    }
+
+    private CompletableFuture<Map<String, String>> analyzeStagedDoc(Path stagedDoc, String cacheKey, Span document) {
+        String docKey = UUID.randomUUID() + ".pdf";
+        AnalysisResultCache.BlockSink blockSink = resultCache.openBlockSink(cacheKey);
+        DocumentSearchIndex.Pending searchEntry = searchIndex.begin(cacheKey);
+        Map<String, String> formData = new LinkedHashMap<>();
+        return tracing.traceAsync(document, "textract.upload", span -> documentUploader.uploadAsync(BUCKET_NAME, docKey, stagedDoc))
+                .whenComplete((ignored, e) -> documentUploader.discard(stagedDoc))
+                .thenCompose(ignored -> startS3DocAnalyze(docKey, document))
+                .thenCompose(jobId -> tracing.traceAsync(document, "textract.job.wait", span -> awaitJob(jobId, span))
+                        .thenComposeAsync(firstPage -> tracing.traceAsync(document, "textract.results", span -> getS3DocAnalyze(jobId, firstPage, span, document, new int[2],
+                                new TextractDocumentBuilder(page -> {
+                                    if (blockSink != null) blockSink.write(page.GetBlocks());
+                                    searchEntry.addPage(page.GetBlocks());
+                                    metrics.documentPage(page.GetBlocks().size());
+                                    FormExtractor.merge(formData, tracing.trace(document, "textract.parse", parse -> parsePage(parse, page.GetPageNumber(), page.GetBlocks())));
+                                }))), parseExecutor))
+                .whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        if (blockSink != null) blockSink.abort();
+                    } else {
+                        if (blockSink != null) blockSink.commit();
+                        resultCache.put(cacheKey, formData);
+                        searchEntry.commit(formData);
+                    }
+                    deleteDocOnS3(docKey, document);
+                })
+                .thenApply(ignored -> formData);
+    }
+
+    private Map<String, String> parsePage(Span span, int pageNumber, List<Block> blocks) {
+        Map<String, String> formData = metrics.parse(blocks);
+        span.tag(AnalysisTracing.PAGE, String.valueOf(pageNumber));
+        span.tag(AnalysisTracing.BLOCKS, String.valueOf(blocks.size()));
+        span.tag(AnalysisTracing.FIELDS, String.valueOf(formData.size()));
+        return formData;
+    }
+
+    private CompletableFuture<Void> deleteDocOnS3(String docKey, Span document) {
+        DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
+                .bucket(BUCKET_NAME)
+                .key(docKey)
+                .build();
+        Timer.Sample sample = metrics.start();
+        return tracing.traceAsync(document, "textract.delete", span -> s3AsyncClient.deleteObject(deleteObjectRequest))
+                .handle((response, e) -> {
+                    metrics.deleted(sample, e);
+                    if (e != null) log.warn("Document {} was not removed from S3", docKey, e);
+                    return null;
+                });
+    }
+
+    private CompletableFuture<String> startS3DocAnalyze(String docKey, Span document) {
+        StartDocumentAnalysisRequest documentAnalysisRequest = StartDocumentAnalysisRequest.builder()
+                .documentLocation(DocumentLocation.builder()
+                        .s3Object(S3Object.builder()
+                                .bucket(BUCKET_NAME)
+                                .name(docKey)
+                                .build())
+                        .build())
+                .featureTypes(ASYNC_FEATURE_TYPES)
+                .notificationChannel(jobCompletionSource.getNotificationChannel())
+                .build();
+        Timer.Sample sample = metrics.start();
+        return tracing.traceAsync(document, "textract.job.start", span -> textractAsyncClient.startDocumentAnalysis(documentAnalysisRequest)
+                        .whenComplete((response, e) -> {
+                            metrics.jobStarted(sample, e);
+                            if (response != null) {
+                                span.tag(AnalysisTracing.JOB_ID, response.jobId());
+                                document.tag(AnalysisTracing.JOB_ID, response.jobId());
+                            }
+                        }))
+                .thenApply(StartDocumentAnalysisResponse::jobId);
+    }
+
+    private CompletableFuture<GetDocumentAnalysisResponse> awaitJob(String jobId, Span span) {
+        span.tag(AnalysisTracing.JOB_ID, jobId);
+        // Polling is the one source that would block: do the same polling on the async client instead. Sources
+        // that are told of completion (SQS, or in-memory with no channel at all) are tracked as in sync mode.
+        if (!(jobCompletionSource instanceof TextractJobTracker)) {
+            return jobCompletionSource.track(jobId);
+        }
+        return pollJob(jobId, span, initialDelayMs, System.currentTimeMillis() + timeoutMs, System.nanoTime(), 0);
+    }
+
+    private CompletableFuture<GetDocumentAnalysisResponse> pollJob(String jobId, Span span, long delayMs, long deadline, long startedNanos, int polls) {
+        if (System.currentTimeMillis() > deadline) {
+            metrics.jobFinished(startedNanos, polls, "TIMED_OUT");
+            jobFinished(span, polls, "TIMED_OUT");
+            return CompletableFuture.failedFuture(new TimeoutException("Textract job " + jobId + " did not finish within " + timeoutMs + "ms"));
+        }
+        long nextDelayMs = Math.min(maxDelayMs, (long) (delayMs * backoffMultiplier));
+        return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS))
+                .thenCompose(ignored -> tracing.within(span, () -> textractAsyncClient.getDocumentAnalysis(GetDocumentAnalysisRequest.builder()
+                        .jobId(jobId)
+                        .maxResults(pageSize)
+                        .build())))
+                .thenCompose(response -> switch (response.jobStatus()) {
+                    case SUCCEEDED, PARTIAL_SUCCESS -> {
+                        metrics.jobPolled("succeeded");
+                        metrics.jobFinished(startedNanos, polls + 1, response.jobStatusAsString());
+                        jobFinished(span, polls + 1, response.jobStatusAsString());
+                        yield CompletableFuture.completedFuture(response);
+                    }
+                    case IN_PROGRESS -> {
+                        metrics.jobPolled("in_progress");
+                        yield pollJob(jobId, span, nextDelayMs, deadline, startedNanos, polls + 1);
+                    }
+                    default -> {
+                        metrics.jobPolled("failed");
+                        metrics.jobFinished(startedNanos, polls + 1, response.jobStatusAsString());
+                        jobFinished(span, polls + 1, response.jobStatusAsString());
+                        yield CompletableFuture.failedFuture(new TextractJobException(jobId,
+                                "finished with status " + response.jobStatusAsString() + ": " + response.statusMessage()));
+                    }
+                })
+                .exceptionallyCompose(e -> {
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    if (cause instanceof ProvisionedThroughputExceededException || cause instanceof ThrottlingException) {
+                        metrics.jobPolled("throttled");
+                        return pollJob(jobId, span, Math.min(maxDelayMs, (long) (nextDelayMs * backoffMultiplier)), deadline, startedNanos, polls + 1);
+                    }
+                    return CompletableFuture.failedFuture(cause);
+                });
+    }
+
+    private static void jobFinished(Span span, int polls, String status) {
+        span.tag(AnalysisTracing.JOB_POLLS, String.valueOf(polls));
+        span.tag(AnalysisTracing.JOB_STATUS, status);
+    }
+
+    /**
+     * @param totals result pages and blocks received so far, tagged on the spans once the last page is in
+     */
+    private CompletableFuture<Void> getS3DocAnalyze(String jobId, GetDocumentAnalysisResponse response, Span span, Span document, int[] totals,
+                                                    TextractDocumentBuilder documentBuilder) {
+        metrics.resultPageReceived();
+        totals[0]++;
+        totals[1] += response.blocks().size();
+        documentBuilder.Add(response);
+        if (response.nextToken() == null) {
+            documentBuilder.Finish();
+            span.tag(AnalysisTracing.RESULT_PAGES, String.valueOf(totals[0]));
+            span.tag(AnalysisTracing.BLOCKS, String.valueOf(totals[1]));
+            document.tag(AnalysisTracing.PAGES, String.valueOf(response.documentMetadata().pages()));
+            document.tag(AnalysisTracing.BLOCKS, String.valueOf(totals[1]));
+            return CompletableFuture.completedFuture(null);
+        }
+        GetDocumentAnalysisRequest analysisRequest = GetDocumentAnalysisRequest.builder()
+                .jobId(jobId)
+                .maxResults(pageSize)
+                .nextToken(response.nextToken())
+                .build();
+        Timer.Sample sample = metrics.start();
+        CompletableFuture<GetDocumentAnalysisResponse> fetch;
+        try {
+            fetch = tracing.within(span, () -> textractAsyncClient.getDocumentAnalysis(analysisRequest));
+        } catch (RuntimeException e) {
+            // A request the client rejects before sending still has to stop the sample.
+            fetch = CompletableFuture.failedFuture(e);
+        }
+        return fetch
+                .whenComplete((next, e) -> metrics.resultPageFetched(sample, e))
+                .thenComposeAsync(next -> getS3DocAnalyze(jobId, next, span, document, totals, documentBuilder), parseExecutor);
+    }
+}
@@ -0,0 +1,339 @@
+package ethan.entelect.textract.demo.services;
+
+import ethan.entelect.textract.demo.util.TextNormalizer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Inverted index over the form fields and page text of every completed analysis, so documents can be found
+ * by "key = value" or by words they contain without re-parsing stored blocks.
+ * Documents are identified by their result cache key. Exact key/value lookups are two hash probes, and word
+ * queries intersect sorted posting lists. The index lives entirely on the heap, including a copy of every
+ * document's field map for reporting hits, so its size grows with the number of documents and fields indexed.
+ * With a directory configured, every indexed document is also appended and synced to a segment file, outside
+ * the index lock so searches never wait on the disk; segments are only read on startup, to replay their
+ * documents into the heap index.
+ */
+@Component
+public class DocumentSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(DocumentSearchIndex.class);
+
+    private static final byte RECORD = 1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Serialises segment appends, so readers never wait on a disk sync.
+    private final Object appendLock = new Object();
+    private final List<String> documentIds = new ArrayList<>();
+    private final Map<String, Integer> documentOrdinals = new HashMap<>();
+    private final List<Map<String, String>> documentFields = new ArrayList<>();
+    private final Map<String, Postings> keys = new HashMap<>();
+    private final Map<String, Map<String, Postings>> keyValues = new HashMap<>();
+    private final Map<String, Postings> terms = new HashMap<>();
+
+    private final Path dir;
+    private final long segmentBytes;
+    private FileChannel segmentChannel;
+    private DataOutputStream segment;
+    private long segmentSize;
+
+    public DocumentSearchIndex(@Value("${textract.search.dir:}") String dir,
+                               @Value("${textract.search.segment-bytes:67108864}") long segmentBytes) throws IOException {
+        this.segmentBytes = segmentBytes;
+        if (dir == null || dir.isBlank()) {
+            this.dir = null;
+            return;
+        }
+        this.dir = Files.createDirectories(Paths.get(dir));
+        try (Stream<Path> segments = Files.list(this.dir)) {
+            for (Path file : segments.filter(p -> p.getFileName().toString().endsWith(".idx")).sorted().toList()) {
+                load(file);
+            }
+        }
+    }
+
+    /**
+     * Collects the page text of a document while it is being analysed; nothing is searchable until commit.
+     */
+    public Pending begin(String documentId) {
+        return new Pending(documentId);
+    }
+
+    public void add(String documentId, Map<String, String> fields, List<Block> blocks) {
+        Pending pending = begin(documentId);
+        pending.addPage(blocks);
+        pending.commit(fields);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Documents having the key (and the value, when given) and containing every word of the query, when given.
+     * Each hit lists the document id and, for key searches, the matching field.
+     */
+    public List<Map<String, String>> search(String key, String value, String query, int limit) {
+        String k = TextNormalizer.normalize(key);
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>();
+            boolean filtered = false;
+            if (!k.isEmpty()) {
+                filtered = true;
+                if (value == null || value.isBlank()) {
+                    lists.add(keys.get(k));
+                } else {
+                    Map<String, Postings> values = keyValues.get(k);
+                    lists.add(values == null ? null : values.get(TextNormalizer.normalize(value)));
+                }
+            }
+            String q = TextNormalizer.normalize(query);
+            if (!q.isEmpty()) {
+                filtered = true;
+                for (String term : q.split(" ")) lists.add(terms.get(term));
+            }
+            if (!filtered) return List.of();
+            if (lists.contains(null)) return List.of();
+
+            // Start from the shortest list so the intersection never holds more than its smallest input.
+            lists.sort((a, b) -> Integer.compare(a.size, b.size));
+            int[] hits = lists.get(0).toArray();
+            for (int i = 1; i < lists.size() && hits.length > 0; i++) {
+                hits = intersect(hits, lists.get(i));
+            }
+
+            String v = value == null || value.isBlank() ? null : TextNormalizer.normalize(value);
+            List<Map<String, String>> results = new ArrayList<>(Math.min(hits.length, limit));
+            for (int i = 0; i < hits.length && results.size() < limit; i++) {
+                Map<String, String> hit = new LinkedHashMap<>();
+                hit.put("documentId", documentIds.get(hits[i]));
+                if (!k.isEmpty()) {
+                    for (Map.Entry<String, String> field : documentFields.get(hits[i]).entrySet()) {
+                        if (!TextNormalizer.normalize(field.getKey()).equals(k)) continue;
+                        // Several fields of a document can share a normalised key; report the one whose value matched.
+                        if (v != null && !TextNormalizer.normalize(field.getValue()).equals(v)) continue;
+                        hit.put("key", field.getKey());
+                        hit.put("value", field.getValue());
+                        break;
+                    }
+                }
+                results.add(hit);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void index(String documentId, Map<String, String> fields, List<String> pageText, boolean persist) {
+        lock.writeLock().lock();
+        try {
+            if (documentOrdinals.containsKey(documentId)) return;
+            int ordinal = documentIds.size();
+            documentIds.add(documentId);
+            documentOrdinals.put(documentId, ordinal);
+            // Keep the extractor's order: a hit reports the first field whose key matches.
+            documentFields.add(Collections.unmodifiableMap(new LinkedHashMap<>(fields)));
+
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                String k = TextNormalizer.normalize(field.getKey());
+                String v = TextNormalizer.normalize(field.getValue());
+                keys.computeIfAbsent(k, x -> new Postings()).add(ordinal);
+                keyValues.computeIfAbsent(k, x -> new HashMap<>()).computeIfAbsent(v, x -> new Postings()).add(ordinal);
+                addTerms(k, ordinal);
+                addTerms(v, ordinal);
+            }
+            for (String text : pageText) {
+                addTerms(TextNormalizer.normalize(text), ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (persist) append(documentId, fields, pageText);
+    }
+
+    private void addTerms(String normalized, int ordinal) {
+        if (normalized.isEmpty()) return;
+        for (String term : normalized.split(" ")) {
+            terms.computeIfAbsent(term, x -> new Postings()).add(ordinal);
+        }
+    }
+
+    private void append(String documentId, Map<String, String> fields, List<String> pageText) {
+        if (dir == null) return;
+        synchronized (appendLock) {
+            appendRecord(documentId, fields, pageText);
+        }
+    }
+
+    private void appendRecord(String documentId, Map<String, String> fields, List<String> pageText) {
+        try {
+            if (segment == null || segmentSize >= segmentBytes) {
+                if (segment != null) segment.close();
+                Path file = dir.resolve(String.format("segment-%013d.idx", System.currentTimeMillis()));
+                segmentChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                segment = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(segmentChannel)));
+                segmentSize = 0;
+            }
+            int before = segment.size();
+            segment.writeByte(RECORD);
+            writeString(segment, documentId);
+            segment.writeInt(fields.size());
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                writeString(segment, field.getKey());
+                writeString(segment, field.getValue());
+            }
+            segment.writeInt(pageText.size());
+            for (String text : pageText) writeString(segment, text);
+            segment.flush();
+            // The record only counts as persisted once it is on disk, not just in the page cache.
+            segmentChannel.force(false);
+            segmentSize += segment.size() - before;
+        } catch (IOException e) {
+            log.warn("Could not append {} to the search segment", documentId, e);
+        }
+    }
+
+    private void load(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.hasRemaining() && buffer.get() == RECORD) {
+                String documentId = readString(buffer);
+                int fieldCount = buffer.getInt();
+                Map<String, String> fields = new LinkedHashMap<>();
+                for (int i = 0; i < fieldCount; i++) fields.put(readString(buffer), readString(buffer));
+                int pageCount = buffer.getInt();
+                List<String> pageText = new ArrayList<>(pageCount);
+                for (int i = 0; i < pageCount; i++) pageText.add(readString(buffer));
+                index(documentId, fields, pageText, false);
+            }
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            // A record cut short or torn by a crash; everything before it has been loaded.
+            log.warn("Search segment {} ends in a truncated record, skipped it", file);
+        } catch (IOException e) {
+            log.warn("Could not load search segment {}", file, e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        // A torn length can be far larger than the segment; fail as a short read rather than allocating it.
+        if (length > buffer.remaining()) throw new BufferUnderflowException();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int[] intersect(int[] a, Postings postings) {
+        int[] b = postings.docs;
+        int[] result = new int[a.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < postings.size) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j = Math.max(j + 1, lowerBound(b, j, postings.size, a[i]));
+            else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int lowerBound(int[] docs, int from, int to, int doc) {
+        int index = Arrays.binarySearch(docs, from, to, doc);
+        return index < 0 ? -index - 1 : index;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (appendLock) {
+            try {
+                if (segment != null) segment.close();
+            } catch (IOException e) {
+                log.warn("Could not close the search segment", e);
+            }
+        }
+    }
+
+    public class Pending {
+        private final String documentId;
+        private final List<String> pageText = new ArrayList<>();
+
+        private Pending(String documentId) {
+            this.documentId = documentId;
+        }
+
+        public synchronized void addPage(List<Block> blocks) {
+            StringBuilder text = new StringBuilder();
+            for (Block block : blocks) {
+                if (block.blockType() != BlockType.LINE || block.text() == null) continue;
+                if (text.length() > 0) text.append('\n');
+                text.append(block.text());
+            }
+            pageText.add(text.toString());
+        }
+
+        public synchronized void commit(Map<String, String> fields) {
+            index(documentId, fields, pageText, true);
+        }
+    }
+
+    /**
+     * Ascending document ordinals. Documents are indexed in ordinal order, so appending keeps the list sorted.
+     */
+    private static class Postings {
+        private int[] docs = new int[2];
+        private int size;
+
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] == doc) return;
+            if (size == docs.length) docs = Arrays.copyOf(docs, size * 2);
+            docs[size++] = doc;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(docs, size);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ethan.entelect.textract.demo.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.textract.TextractClient;
+import software.amazon.awssdk.services.textract.model.JobStatus;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * In-process stand-in for the SNS topic and SQS queue, for tests and local runs.
+ * Completions are published directly; a completion published before the job is tracked is held until it is.
+ */
+@Component
+@ConditionalOnProperty(name = "textract.jobs.completion", havingValue = "in-memory")
+public class InMemoryJobCompletionSource extends NotificationJobCompletionSource {
+    private final Map<String, String[]> undelivered = new HashMap<>();
+
+    public InMemoryJobCompletionSource(TextractClient textractClient,
+                                       Executor analysisExecutor,
+                                       AnalysisMetrics metrics,
+                                       AnalysisTracing tracing,
+                                       @Value("${textract.jobs.timeout-ms:1800000}") long timeoutMs,
+                                       @Value("${textract.jobs.page-size:1000}") int pageSize) {
+        super(textractClient, analysisExecutor, metrics, tracing, null, timeoutMs, pageSize);
+    }
+
+    public void publish(String jobId, JobStatus status) {
+        publish(jobId, status, null);
+    }
+
+    public void publish(String jobId, JobStatus status, String message) {
+        // Checking for the job and holding the notification happen under one lock, so a job tracked in between
+        // still finds it in onTracked.
+        synchronized (undelivered) {
+            if (!onNotification(jobId, status.toString(), message)) {
+                undelivered.put(jobId, new String[]{status.toString(), message});
+            }
+        }
+    }
+
+    @Override
+    protected void onTracked(String jobId) {
+        String[] notification;
+        synchronized (undelivered) {
+            notification = undelivered.remove(jobId);
+        }
+        if (notification != null) {
+            onNotification(jobId, notification[0], notification[1]);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ethan.entelect.textract.demo.services;
+
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
+import software.amazon.awssdk.services.textract.model.NotificationChannel;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface JobCompletionSource {
+    /**
+     * Completes with the first page of results once the job succeeds, or exceptionally if it fails or times out.
+     */
+    CompletableFuture<GetDocumentAnalysisResponse> track(String jobId);
+
+    /**
+     * Channel Textract should publish job completion to, or {@code null} when completion is discovered by polling.
+     */
+    default NotificationChannel getNotificationChannel() {
+        return null;
+    }
+}
@@ -0,0 +1,73 @@
+package ethan.entelect.textract.demo.services;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory store of /kvs jobs. Finished jobs are kept for the configured TTL so clients can collect
+ * the result, then evicted by a periodic sweep; jobs still running are never evicted.
+ */
+@Component
+public class JobRegistry {
+    private final Map<String, AnalysisJob> jobs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+    private final long ttlMs;
+
+    public JobRegistry(@Value("${textract.jobs.registry.ttl-ms:3600000}") long ttlMs,
+                       @Value("${textract.jobs.registry.sweep-interval-ms:60000}") long sweepIntervalMs) {
+        this.ttlMs = ttlMs;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-registry-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sweeper.scheduleWithFixedDelay(this::evictExpired, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public AnalysisJob create() {
+        AnalysisJob job = new AnalysisJob(UUID.randomUUID().toString());
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    public AnalysisJob get(String id) {
+        AnalysisJob job = jobs.get(id);
+        if (job != null && isExpired(job, Instant.now())) {
+            jobs.remove(id);
+            return null;
+        }
+        return job;
+    }
+
+    public void remove(String id) {
+        jobs.remove(id);
+    }
+
+    public int size() {
+        return jobs.size();
+    }
+
+    private void evictExpired() {
+        Instant now = Instant.now();
+        jobs.values().removeIf(job -> isExpired(job, now));
+    }
+
+    private boolean isExpired(AnalysisJob job, Instant now) {
+        Instant completedAt = job.getCompletedAt();
+        return completedAt != null && completedAt.plusMillis(ttlMs).isBefore(now);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+}
@@ -0,0 +1,96 @@
+package ethan.entelect.textract.demo.services;
+
+import io.micrometer.tracing.Span;
+import software.amazon.awssdk.services.textract.TextractClient;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisRequest;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
+import software.amazon.awssdk.services.textract.model.JobStatus;
+import software.amazon.awssdk.services.textract.model.NotificationChannel;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Base for completion sources that are told when a job finishes instead of asking.
+ * Subclasses deliver notifications through {@link #onNotification}; the only Textract call made per job
+ * is the one GetDocumentAnalysis that fetches the first page of results, traced under the span current when
+ * the job was tracked.
+ */
+abstract class NotificationJobCompletionSource implements JobCompletionSource {
+    private final TextractClient textractClient;
+    private final Executor executor;
+    private final AnalysisMetrics metrics;
+    private final AnalysisTracing tracing;
+    private final NotificationChannel notificationChannel;
+    private final long timeoutMs;
+    private final int pageSize;
+    private final Map<String, CompletableFuture<GetDocumentAnalysisResponse>> pending = new ConcurrentHashMap<>();
+    private final Map<String, Span> spans = new ConcurrentHashMap<>();
+
+    NotificationJobCompletionSource(TextractClient textractClient, Executor executor, AnalysisMetrics metrics, AnalysisTracing tracing,
+                                    NotificationChannel notificationChannel, long timeoutMs, int pageSize) {
+        this.textractClient = textractClient;
+        this.executor = executor;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        this.notificationChannel = notificationChannel;
+        this.timeoutMs = timeoutMs;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public CompletableFuture<GetDocumentAnalysisResponse> track(String jobId) {
+        CompletableFuture<GetDocumentAnalysisResponse> future = pending.computeIfAbsent(jobId, id -> {
+            CompletableFuture<GetDocumentAnalysisResponse> created = new CompletableFuture<>();
+            long started = System.nanoTime();
+            Span span = tracing.current();
+            if (span != null) spans.put(id, span);
+            created.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((r, e) -> {
+                pending.remove(id);
+                spans.remove(id);
+                String status = r != null ? r.jobStatusAsString() : e instanceof TimeoutException ? "TIMED_OUT" : "FAILED";
+                metrics.jobFinished(started, 0, status);
+                if (span != null) span.tag(AnalysisTracing.JOB_STATUS, status);
+            });
+            return created;
+        });
+        onTracked(jobId);
+        return future;
+    }
+
+    @Override
+    public NotificationChannel getNotificationChannel() {
+        return notificationChannel;
+    }
+
+    /**
+     * @return false when the job is not tracked by this instance, so the notification can be left for another consumer
+     */
+    protected boolean onNotification(String jobId, String status, String message) {
+        CompletableFuture<GetDocumentAnalysisResponse> future = pending.get(jobId);
+        if (future == null) return false;
+
+        JobStatus jobStatus = JobStatus.fromValue(status);
+        if (jobStatus == JobStatus.SUCCEEDED || jobStatus == JobStatus.PARTIAL_SUCCESS) {
+            Span span = spans.get(jobId);
+            CompletableFuture.supplyAsync(() -> tracing.within(span, () -> textractClient.getDocumentAnalysis(GetDocumentAnalysisRequest.builder()
+                            .jobId(jobId)
+                            .maxResults(pageSize)
+                            .build())), executor)
+                    .whenComplete((response, e) -> {
+                        if (e != null) future.completeExceptionally(new TextractJobException(jobId, "fetching results failed", e));
+                        else future.complete(response);
+                    });
+        } else {
+            future.completeExceptionally(new TextractJobException(jobId, "finished with status " + status + ": " + message));
+        }
+        return true;
+    }
+
+    protected void onTracked(String jobId) {
+    }
+}
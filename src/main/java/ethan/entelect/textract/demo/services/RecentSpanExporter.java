@@ -0,0 +1,66 @@
+package ethan.entelect.textract.demo.services;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the most recently finished spans in memory so tests and local runs can inspect whole traces
+ * without a collector. Spring Boot hands every SpanExporter bean to the OpenTelemetry SDK, so enabling
+ * this is all that is needed; spans arrive in batches once the batch processor flushes.
+ */
+@Component
+@ConditionalOnProperty(name = "textract.tracing.in-memory.enabled", havingValue = "true")
+public class RecentSpanExporter implements SpanExporter {
+    private final int capacity;
+    private final Deque<SpanData> spans = new ArrayDeque<>();
+
+    public RecentSpanExporter(@Value("${textract.tracing.in-memory.capacity:10000}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> finished) {
+        for (SpanData span : finished) {
+            if (spans.size() == capacity) spans.removeFirst();
+            spans.addLast(span);
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    public synchronized List<SpanData> getFinishedSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    public synchronized List<SpanData> getTrace(String traceId) {
+        List<SpanData> trace = new ArrayList<>();
+        for (SpanData span : spans) {
+            if (span.getTraceId().equals(traceId)) trace.add(span);
+        }
+        return trace;
+    }
+
+    public synchronized void reset() {
+        spans.clear();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        reset();
+        return CompletableResultCode.ofSuccess();
+    }
+}
@@ -0,0 +1,354 @@
+package ethan.entelect.textract.demo.services;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams uploaded documents to S3 from disk so heap use does not grow with document size.
+ * The multipart upload is first staged to a local file (Tomcat moves its temp file where it can), then sent
+ * with a single PutObject, or as a parallel S3 multipart upload once it exceeds the configured threshold.
+ * Part uploads run on other threads, so they are put back under the caller's span to keep them in its trace.
+ */
+@Component
+public class S3DocumentUploader {
+    private static final Logger log = LoggerFactory.getLogger(S3DocumentUploader.class);
+
+    private static final String SINGLE = "single";
+    private static final String MULTIPART = "multipart";
+
+    private final S3Client s3Client;
+    private final ObjectProvider<S3AsyncClient> s3AsyncClient;
+    private final AnalysisMetrics metrics;
+    private final AnalysisTracing tracing;
+    private final ExecutorService partExecutor;
+
+    @Value("${textract.upload.staging-dir:${java.io.tmpdir}}")
+    private String stagingDir;
+
+    @Value("${textract.upload.multipart-threshold-bytes:16777216}")
+    private long multipartThreshold;
+
+    @Value("${textract.upload.part-size-bytes:8388608}")
+    private long partSize;
+
+    public S3DocumentUploader(S3Client s3Client, ObjectProvider<S3AsyncClient> s3AsyncClient, AnalysisMetrics metrics, AnalysisTracing tracing,
+                              @Value("${textract.upload.part-threads:4}") int partThreads) {
+        this.s3Client = s3Client;
+        this.s3AsyncClient = s3AsyncClient;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.partExecutor = metrics.monitor(Executors.newFixedThreadPool(partThreads, runnable -> {
+            Thread thread = new Thread(runnable, "s3-part-upload-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }), "s3PartExecutor");
+    }
+
+    public Path stage(MultipartFile sourceDoc) throws IOException {
+        Path staged = Files.createTempFile(Paths.get(stagingDir), "textract-", ".upload");
+        // Part.write refuses to overwrite, so hand it a path that does not exist yet.
+        Files.delete(staged);
+        sourceDoc.transferTo(staged.toFile());
+        return staged;
+    }
+
+    public void discard(Path staged) {
+        try {
+            Files.deleteIfExists(staged);
+        } catch (IOException e) {
+            log.warn("Could not remove staged document {}", staged, e);
+        }
+    }
+
+    public void upload(String bucket, String key, Path file) throws IOException {
+        long size = Files.size(file);
+        boolean multipart = size >= multipartThreshold;
+        Span span = tracing.current();
+        tagUpload(span, multipart, size);
+        Timer.Sample sample = metrics.start();
+        try {
+            if (multipart) {
+                uploadMultipart(bucket, key, file, size, span);
+            } else {
+                PutObjectRequest objectRequest = PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .contentLength(size)
+                        .build();
+                s3Client.putObject(objectRequest, RequestBody.fromFile(file));
+            }
+            metrics.uploaded(sample, multipart ? MULTIPART : SINGLE, size, null);
+        } catch (RuntimeException e) {
+            metrics.uploaded(sample, multipart ? MULTIPART : SINGLE, size, e);
+            throw e;
+        }
+    }
+
+    private void uploadMultipart(String bucket, String key, Path file, long size, Span span) {
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .build()).uploadId();
+        // Parts are collected as they finish, so the first failure stops the upload without waiting on earlier parts.
+        CompletionService<CompletedPart> completion = new ExecutorCompletionService<>(partExecutor);
+        List<Future<CompletedPart>> parts = new ArrayList<>();
+        try {
+            forEachPart(size, (partNumber, offset, length) -> parts.add(completion.submit(() -> {
+                UploadPartRequest partRequest = UploadPartRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength(length)
+                        .build();
+                // The part is opened once and closed here however the upload ends, rather than left to the SDK.
+                try (InputStream part = openPart(file, offset, length)) {
+                    String eTag = tracing.within(span, () -> s3Client.uploadPart(partRequest, RequestBody.fromInputStream(part, length)).eTag());
+                    return CompletedPart.builder().partNumber(partNumber).eTag(eTag).build();
+                }
+            })));
+            List<CompletedPart> completed = new ArrayList<>(parts.size());
+            for (int i = 0; i < parts.size(); i++) completed.add(completion.take().get());
+            completed.sort(Comparator.comparing(CompletedPart::partNumber));
+            completeMultipartUpload(bucket, key, uploadId, completed);
+        } catch (RuntimeException | ExecutionException | InterruptedException e) {
+            // Stop the parts still queued or on the wire first, so none of them is sent after the abort.
+            parts.forEach(part -> part.cancel(true));
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+            if (e instanceof RuntimeException runtime) throw runtime;
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            throw new CompletionException(e instanceof ExecutionException ? e.getCause() : e);
+        }
+    }
+
+    public CompletableFuture<Void> uploadAsync(String bucket, String key, Path file) {
+        S3AsyncClient client = s3AsyncClient.getObject();
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        boolean multipart = size >= multipartThreshold;
+        Span span = tracing.current();
+        tagUpload(span, multipart, size);
+        Timer.Sample sample = metrics.start();
+        CompletableFuture<Void> upload;
+        if (multipart) {
+            upload = uploadMultipartAsync(client, bucket, key, file, size, span);
+        } else {
+            PutObjectRequest objectRequest = PutObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .contentLength(size)
+                    .build();
+            upload = client.putObject(objectRequest, AsyncRequestBody.fromFile(file)).thenApply(response -> null);
+        }
+        return upload.whenComplete((ignored, e) -> metrics.uploaded(sample, multipart ? MULTIPART : SINGLE, size, e));
+    }
+
+    private CompletableFuture<Void> uploadMultipartAsync(S3AsyncClient client, String bucket, String key, Path file, long size, Span span) {
+        return client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .build())
+                .thenCompose(created -> tracing.within(span, () -> {
+                    String uploadId = created.uploadId();
+                    List<CompletableFuture<UploadPartResponse>> requests = new ArrayList<>();
+                    List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+                    CompletableFuture<Void> sent;
+                    try {
+                        forEachPart(size, (partNumber, offset, length) -> {
+                            UploadPartRequest partRequest = UploadPartRequest.builder()
+                                    .bucket(bucket)
+                                    .key(key)
+                                    .uploadId(uploadId)
+                                    .partNumber(partNumber)
+                                    .contentLength(length)
+                                    .build();
+                            InputStream part = openPart(file, offset, length);
+                            CompletableFuture<UploadPartResponse> request;
+                            try {
+                                request = client.uploadPart(partRequest, AsyncRequestBody.fromInputStream(part, length, partExecutor));
+                            } catch (RuntimeException e) {
+                                closeQuietly(part);
+                                throw e;
+                            }
+                            requests.add(request);
+                            // The stream is closed however the part ends, cancelled and failed parts included.
+                            parts.add(request.whenComplete((response, e) -> closeQuietly(part))
+                                    .thenApply(response -> CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build()));
+                        });
+                        sent = allOrFirstFailure(parts);
+                    } catch (RuntimeException e) {
+                        sent = CompletableFuture.failedFuture(e);
+                    }
+                    return sent
+                            .thenCompose(ignored -> tracing.within(span, () -> client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                                    .bucket(bucket)
+                                    .key(key)
+                                    .uploadId(uploadId)
+                                    .multipartUpload(CompletedMultipartUpload.builder()
+                                            .parts(parts.stream().map(CompletableFuture::join).toList())
+                                            .build())
+                                    .build())))
+                            .<Void>thenApply(response -> null)
+                            .whenComplete((ignored, e) -> {
+                                if (e != null) {
+                                    requests.forEach(request -> request.cancel(true));
+                                    tracing.within(span, () -> client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                                            .bucket(bucket)
+                                            .key(key)
+                                            .uploadId(uploadId)
+                                            .build()));
+                                }
+                            });
+                }));
+    }
+
+    /**
+     * Completes when every future has, or as soon as one of them fails.
+     */
+    private static CompletableFuture<Void> allOrFirstFailure(List<? extends CompletableFuture<?>> futures) {
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+        for (CompletableFuture<?> future : futures) {
+            future.whenComplete((ignored, e) -> {
+                if (e != null) all.completeExceptionally(e);
+            });
+        }
+        return all;
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            log.warn("Could not close a part stream", e);
+        }
+    }
+
+    private static void tagUpload(Span span, boolean multipart, long size) {
+        if (span == null) return;
+        span.tag(AnalysisTracing.DOCUMENT_BYTES, String.valueOf(size));
+        span.tag("textract.upload.mode", multipart ? MULTIPART : SINGLE);
+    }
+
+    private void completeMultipartUpload(String bucket, String key, String uploadId, List<CompletedPart> parts) {
+        s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                .build());
+    }
+
+    private void forEachPart(long size, PartConsumer consumer) {
+        int partNumber = 1;
+        for (long offset = 0; offset < size; offset += partSize) {
+            consumer.accept(partNumber++, offset, Math.min(partSize, size - offset));
+        }
+    }
+
+    private static InputStream openPart(Path file, long offset, long length) {
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            channel.position(offset);
+            return new BoundedInputStream(Channels.newInputStream(channel), length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partExecutor.shutdownNow();
+    }
+
+    private interface PartConsumer {
+        void accept(int partNumber, long offset, long length);
+    }
+
+    private static class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = super.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ethan.entelect.textract.demo.services;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+
+import java.util.List;
+
+/**
+ * Records each AWS SDK call, retries included, as a child span of the span current when the call was made.
+ * Calls made outside any span (background SQS receives, for one) are not traced.
+ * The span is kept on the execution attributes because async clients finish on a different thread.
+ */
+@Component
+public class SdkCallTracing implements ExecutionInterceptor {
+    private static final ExecutionAttribute<Span> SPAN = new ExecutionAttribute<>("TracingSpan");
+    private static final List<String> REQUEST_ID_HEADERS = List.of("x-amzn-RequestId", "x-amz-request-id");
+
+    private final Tracer tracer;
+
+    public SdkCallTracing(ObjectProvider<Tracer> tracer) {
+        this.tracer = tracer.getIfAvailable(() -> Tracer.NOOP);
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        Span parent = tracer.currentSpan();
+        if (parent == null) return;
+        String service = executionAttributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME);
+        String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+        Span span = tracer.nextSpan(parent)
+                .name(service + "." + operation)
+                .tag("aws.service", service)
+                .tag("aws.operation", operation)
+                .start();
+        executionAttributes.putAttribute(SPAN, span);
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        Span span = executionAttributes.getAttribute(SPAN);
+        if (span == null) return;
+        span.tag("http.status_code", String.valueOf(context.httpResponse().statusCode()));
+        context.httpResponse().firstMatchingHeader(REQUEST_ID_HEADERS).ifPresent(id -> span.tag("aws.request_id", id));
+        span.end();
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        Span span = executionAttributes.getAttribute(SPAN);
+        if (span == null) return;
+        span.error(context.exception());
+        span.end();
+    }
+}
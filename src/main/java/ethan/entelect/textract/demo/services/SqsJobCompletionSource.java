@@ -0,0 +1,154 @@
+package ethan.entelect.textract.demo.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.textract.TextractClient;
+import software.amazon.awssdk.services.textract.model.NotificationChannel;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Receives Textract job completions from the SQS queue subscribed to the job's SNS topic.
+ * One long-polling thread serves every in-flight job; messages for jobs this instance did not start are
+ * left on the queue for whichever instance did. A message nobody claims is deleted once it is older than the
+ * job timeout, when no instance can still be waiting for it, or once it has been received too many times.
+ */
+@Component
+@ConditionalOnProperty(name = "textract.jobs.completion", havingValue = "sqs")
+public class SqsJobCompletionSource extends NotificationJobCompletionSource {
+    private static final Logger log = LoggerFactory.getLogger(SqsJobCompletionSource.class);
+
+    private final SqsClient sqsClient;
+    private final ObjectMapper objectMapper;
+    private final String queueUrl;
+    private final long timeoutMs;
+    private final int maxReceives;
+    private volatile boolean running;
+    private Thread consumer;
+
+    public SqsJobCompletionSource(TextractClient textractClient,
+                                  SqsClient sqsClient,
+                                  ObjectMapper objectMapper,
+                                  Executor analysisExecutor,
+                                  AnalysisMetrics metrics,
+                                  AnalysisTracing tracing,
+                                  @Value("${textract.notification.sns-topic-arn}") String snsTopicArn,
+                                  @Value("${textract.notification.role-arn}") String roleArn,
+                                  @Value("${textract.notification.sqs-queue-url}") String queueUrl,
+                                  @Value("${textract.jobs.timeout-ms:1800000}") long timeoutMs,
+                                  @Value("${textract.jobs.page-size:1000}") int pageSize,
+                                  @Value("${textract.notification.max-receives:50}") int maxReceives) {
+        super(textractClient, analysisExecutor, metrics, tracing, NotificationChannel.builder()
+                .snsTopicArn(snsTopicArn)
+                .roleArn(roleArn)
+                .build(), timeoutMs, pageSize);
+        this.sqsClient = sqsClient;
+        this.objectMapper = objectMapper;
+        this.queueUrl = queueUrl;
+        this.timeoutMs = timeoutMs;
+        this.maxReceives = maxReceives;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        consumer = new Thread(this::consume, "textract-sqs-consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (consumer != null) consumer.interrupt();
+    }
+
+    private void consume() {
+        ReceiveMessageRequest receiveRequest = ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl)
+                .waitTimeSeconds(20)
+                .maxNumberOfMessages(10)
+                .attributeNamesWithStrings(MessageSystemAttributeName.SENT_TIMESTAMP.toString(),
+                        MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT.toString())
+                .build();
+        while (running) {
+            try {
+                for (Message message : sqsClient.receiveMessage(receiveRequest).messages()) {
+                    process(message);
+                }
+            } catch (Exception e) {
+                if (!running) return;
+                log.warn("Receiving job notifications failed, retrying", e);
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles one message of a batch. A message that cannot be read is deleted rather than redelivered forever,
+     * and a failure on one message never holds up the rest of its batch.
+     */
+    private void process(Message message) {
+        boolean delete;
+        try {
+            delete = handle(message) || isStale(message);
+        } catch (JsonProcessingException e) {
+            log.warn("Dropping unparseable notification {}", message.messageId(), e);
+            delete = true;
+        } catch (RuntimeException e) {
+            log.warn("Could not handle notification {}", message.messageId(), e);
+            delete = isStale(message);
+        }
+        if (!delete) return;
+        try {
+            sqsClient.deleteMessage(DeleteMessageRequest.builder()
+                    .queueUrl(queueUrl)
+                    .receiptHandle(message.receiptHandle())
+                    .build());
+        } catch (RuntimeException e) {
+            log.warn("Could not delete notification {}", message.messageId(), e);
+        }
+    }
+
+    private boolean isStale(Message message) {
+        String sent = message.attributes().get(MessageSystemAttributeName.SENT_TIMESTAMP);
+        String receives = message.attributes().get(MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT);
+        boolean expired = sent != null && System.currentTimeMillis() - Long.parseLong(sent) > timeoutMs;
+        boolean exhausted = receives != null && Integer.parseInt(receives) >= maxReceives;
+        if (expired || exhausted) {
+            log.info("Dropping unclaimed notification {} after {} receives", message.messageId(), receives);
+        }
+        return expired || exhausted;
+    }
+
+    private boolean handle(Message message) throws JsonProcessingException {
+        JsonNode body = objectMapper.readTree(message.body());
+        // Without raw message delivery, SQS wraps the Textract notification in an SNS envelope.
+        if (body.hasNonNull("Message") && body.get("Message").isTextual()) {
+            body = objectMapper.readTree(body.get("Message").asText());
+        }
+        if (!body.hasNonNull("JobId") || !body.hasNonNull("Status")) {
+            log.info("Ignoring unrecognised notification {}", message.messageId());
+            return true;
+        }
+        String statusMessage = body.path("StatusMessage").asText(null);
+        return onNotification(body.get("JobId").asText(), body.get("Status").asText(), statusMessage);
+    }
+}
@@ -0,0 +1,21 @@
+package ethan.entelect.textract.demo.services;
+
+public class TextractJobException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String jobId;
+
+    public TextractJobException(String jobId, String message) {
+        super("Textract job " + jobId + ": " + message);
+        this.jobId = jobId;
+    }
+
+    public TextractJobException(String jobId, String message, Throwable cause) {
+        super("Textract job " + jobId + ": " + message, cause);
+        this.jobId = jobId;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+}
@@ -0,0 +1,207 @@
+package ethan.entelect.textract.demo.services;
+
+import io.micrometer.tracing.Span;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.textract.TextractClient;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisRequest;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
+import software.amazon.awssdk.services.textract.model.JobStatus;
+import software.amazon.awssdk.services.textract.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.textract.model.ThrottlingException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Waits for Textract analysis jobs to finish without parking a thread per job.
+ * One shared scheduler times the polls of every tracked job, backing off while the job is still in progress;
+ * the polls themselves run on the poll executor so a slow GetDocumentAnalysis call never holds up the
+ * schedule. A poll the executor rejects is put back on the schedule, or fails its job once the executor has
+ * shut down, rather than running on the scheduler thread. The returned future completes with the first page of results once the job reaches a terminal
+ * state. Polls are traced under the span current when the job was tracked.
+ */
+@Component
+@ConditionalOnProperty(name = "textract.jobs.completion", havingValue = "polling", matchIfMissing = true)
+public class TextractJobTracker implements JobCompletionSource {
+    private static final Logger log = LoggerFactory.getLogger(TextractJobTracker.class);
+
+    private final TextractClient textractClient;
+    private final AnalysisMetrics metrics;
+    private final AnalysisTracing tracing;
+    private final Executor pollExecutor;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, TrackedJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${textract.jobs.poll.initial-delay-ms:1000}")
+    private long initialDelayMs;
+
+    @Value("${textract.jobs.poll.max-delay-ms:20000}")
+    private long maxDelayMs;
+
+    @Value("${textract.jobs.poll.backoff-multiplier:1.5}")
+    private double backoffMultiplier;
+
+    @Value("${textract.jobs.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${textract.jobs.page-size:1000}")
+    private int pageSize;
+
+    public TextractJobTracker(TextractClient textractClient, AnalysisMetrics metrics, AnalysisTracing tracing,
+                              Executor pollExecutor,
+                              @Value("${textract.jobs.poll.threads:1}") int pollThreads) {
+        this.textractClient = textractClient;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        this.pollExecutor = pollExecutor;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = metrics.monitor(Executors.newScheduledThreadPool(pollThreads, runnable -> {
+            Thread thread = new Thread(runnable, "textract-job-poller-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }), "jobPollScheduler");
+    }
+
+    @Override
+    public CompletableFuture<GetDocumentAnalysisResponse> track(String jobId) {
+        TrackedJob job = jobs.computeIfAbsent(jobId, id -> {
+            TrackedJob created = new TrackedJob(id, System.currentTimeMillis() + timeoutMs, initialDelayMs, tracing.current());
+            schedule(created, initialDelayMs);
+            return created;
+        });
+        return job.future;
+    }
+
+    public int getTrackedJobCount() {
+        return jobs.size();
+    }
+
+    private void poll(TrackedJob job) {
+        if (job.future.isDone()) {
+            jobs.remove(job.jobId);
+            return;
+        }
+        if (System.currentTimeMillis() > job.deadline) {
+            fail(job, "TIMED_OUT", new TimeoutException("Textract job " + job.jobId + " did not finish within " + timeoutMs + "ms"));
+            return;
+        }
+
+        job.polls++;
+        try {
+            GetDocumentAnalysisResponse response = tracing.within(job.span, () -> textractClient.getDocumentAnalysis(GetDocumentAnalysisRequest.builder()
+                    .jobId(job.jobId)
+                    .maxResults(pageSize)
+                    .build()));
+
+            JobStatus status = response.jobStatus();
+            if (status == JobStatus.SUCCEEDED || status == JobStatus.PARTIAL_SUCCESS) {
+                if (status == JobStatus.PARTIAL_SUCCESS) {
+                    log.info("Job {} partially succeeded: {}", job.jobId, response.statusMessage());
+                }
+                jobs.remove(job.jobId);
+                metrics.jobPolled("succeeded");
+                finished(job, response.jobStatusAsString());
+                job.future.complete(response);
+            } else if (status == JobStatus.IN_PROGRESS) {
+                metrics.jobPolled("in_progress");
+                reschedule(job, job.delayMs * backoffMultiplier);
+            } else {
+                metrics.jobPolled("failed");
+                fail(job, response.jobStatusAsString(), new TextractJobException(job.jobId, "finished with status " + response.jobStatusAsString() + ": " + response.statusMessage()));
+            }
+        } catch (ProvisionedThroughputExceededException | ThrottlingException e) {
+            // Throttled polls count against the backoff twice so bursts of jobs spread themselves out.
+            metrics.jobPolled("throttled");
+            reschedule(job, job.delayMs * backoffMultiplier * backoffMultiplier);
+        } catch (Exception e) {
+            metrics.jobPolled("error");
+            fail(job, "ERROR", new TextractJobException(job.jobId, "polling failed", e));
+        }
+    }
+
+    private void reschedule(TrackedJob job, double nextDelayMs) {
+        job.delayMs = Math.min(maxDelayMs, (long) nextDelayMs);
+        long delay = Math.min(job.delayMs, Math.max(0, job.deadline - System.currentTimeMillis()));
+        schedule(job, delay);
+    }
+
+    private void schedule(TrackedJob job, long delayMs) {
+        try {
+            scheduler.schedule(() -> submit(job), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            fail(job, "ERROR", new TextractJobException(job.jobId, "polling stopped", e));
+        }
+    }
+
+    private void submit(TrackedJob job) {
+        try {
+            pollExecutor.execute(() -> poll(job));
+        } catch (RejectedExecutionException e) {
+            if (isShutdown()) {
+                fail(job, "ERROR", new TextractJobException(job.jobId, "polling stopped", e));
+            } else {
+                // The executor is saturated; try again after the job's current delay without counting a poll.
+                log.debug("Poll of job {} rejected, rescheduling", job.jobId);
+                reschedule(job, job.delayMs);
+            }
+        }
+    }
+
+    private boolean isShutdown() {
+        return scheduler.isShutdown()
+                || pollExecutor instanceof ThreadPoolTaskExecutor pool && pool.getThreadPoolExecutor().isShutdown();
+    }
+
+    private void fail(TrackedJob job, String status, Throwable cause) {
+        jobs.remove(job.jobId);
+        finished(job, status);
+        job.future.completeExceptionally(cause);
+    }
+
+    private void finished(TrackedJob job, String status) {
+        metrics.jobFinished(job.startedNanos, job.polls, status);
+        if (job.span != null) {
+            job.span.tag(AnalysisTracing.JOB_POLLS, String.valueOf(job.polls));
+            job.span.tag(AnalysisTracing.JOB_STATUS, status);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        jobs.values().forEach(job -> job.future.cancel(false));
+        jobs.clear();
+    }
+
+    private static class TrackedJob {
+        final String jobId;
+        final long deadline;
+        final CompletableFuture<GetDocumentAnalysisResponse> future = new CompletableFuture<>();
+        final long startedNanos = System.nanoTime();
+        final Span span;
+        volatile long delayMs;
+        // Only touched from the poll task; polls of one job never overlap, each is scheduled by the one before.
+        int polls;
+
+        TrackedJob(String jobId, long deadline, long delayMs, Span span) {
+            this.jobId = jobId;
+            this.deadline = deadline;
+            this.delayMs = delayMs;
+            this.span = span;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package ethan.entelect.textract.demo.util;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+import software.amazon.awssdk.services.textract.model.BoundingBox;
+import software.amazon.awssdk.services.textract.model.EntityType;
+import software.amazon.awssdk.services.textract.model.Geometry;
+import software.amazon.awssdk.services.textract.model.Point;
+import software.amazon.awssdk.services.textract.model.Relationship;
+import software.amazon.awssdk.services.textract.model.RelationshipType;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary form of Textract blocks, covering the fields the parsers in this package read.
+ * Blocks are written one at a time so a document can be streamed to disk page by page.
+ */
+public final class BlockCodec {
+    private static final int MAGIC = 0x54584231;
+
+    private BlockCodec() {
+    }
+
+    public static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+    }
+
+    public static void writeEnd(DataOutputStream out) throws IOException {
+        out.writeBoolean(false);
+    }
+
+    public static void write(DataOutputStream out, Block block) throws IOException {
+        out.writeBoolean(true);
+        out.writeUTF(block.id());
+        out.writeUTF(block.blockTypeAsString());
+        List<EntityType> entityTypes = block.entityTypes();
+        out.writeShort(entityTypes == null ? 0 : entityTypes.size());
+        if (entityTypes != null) {
+            for (EntityType entityType : entityTypes) out.writeUTF(entityType.toString());
+        }
+        writeNullableFloat(out, block.confidence());
+        writeNullableString(out, block.text());
+        writeNullableString(out, block.selectionStatusAsString());
+        writeNullableInt(out, block.rowIndex());
+        writeNullableInt(out, block.columnIndex());
+        writeNullableInt(out, block.rowSpan());
+        writeNullableInt(out, block.columnSpan());
+        writeNullableInt(out, block.page());
+
+        Geometry geometry = block.geometry();
+        out.writeBoolean(geometry != null);
+        if (geometry != null) {
+            BoundingBox bb = geometry.boundingBox();
+            out.writeFloat(bb.left());
+            out.writeFloat(bb.top());
+            out.writeFloat(bb.width());
+            out.writeFloat(bb.height());
+            List<Point> polygon = geometry.polygon();
+            out.writeShort(polygon == null ? 0 : polygon.size());
+            if (polygon != null) {
+                for (Point p : polygon) {
+                    out.writeFloat(p.x());
+                    out.writeFloat(p.y());
+                }
+            }
+        }
+
+        List<Relationship> relationships = block.relationships();
+        out.writeShort(relationships == null ? 0 : relationships.size());
+        if (relationships != null) {
+            for (Relationship r : relationships) {
+                out.writeUTF(r.typeAsString());
+                out.writeInt(r.ids().size());
+                for (String id : r.ids()) out.writeUTF(id);
+            }
+        }
+    }
+
+    public static List<Block> readAll(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("Not an encoded block stream");
+        List<Block> blocks = new ArrayList<>();
+        while (in.readBoolean()) {
+            blocks.add(read(in));
+        }
+        return blocks;
+    }
+
+    private static Block read(DataInputStream in) throws IOException {
+        Block.Builder builder = Block.builder()
+                .id(in.readUTF())
+                .blockType(BlockType.fromValue(in.readUTF()));
+        int entityTypeCount = in.readShort();
+        List<EntityType> entityTypes = new ArrayList<>(entityTypeCount);
+        for (int i = 0; i < entityTypeCount; i++) entityTypes.add(EntityType.fromValue(in.readUTF()));
+        if (entityTypeCount > 0) builder.entityTypes(entityTypes);
+        builder.confidence(readNullableFloat(in))
+                .text(readNullableString(in))
+                .selectionStatus(readNullableString(in))
+                .rowIndex(readNullableInt(in))
+                .columnIndex(readNullableInt(in))
+                .rowSpan(readNullableInt(in))
+                .columnSpan(readNullableInt(in))
+                .page(readNullableInt(in));
+
+        if (in.readBoolean()) {
+            BoundingBox bb = BoundingBox.builder()
+                    .left(in.readFloat())
+                    .top(in.readFloat())
+                    .width(in.readFloat())
+                    .height(in.readFloat())
+                    .build();
+            int pointCount = in.readShort();
+            List<Point> polygon = new ArrayList<>(pointCount);
+            for (int i = 0; i < pointCount; i++) polygon.add(Point.builder().x(in.readFloat()).y(in.readFloat()).build());
+            builder.geometry(Geometry.builder().boundingBox(bb).polygon(polygon).build());
+        }
+
+        int relationshipCount = in.readShort();
+        if (relationshipCount > 0) {
+            List<Relationship> relationships = new ArrayList<>(relationshipCount);
+            for (int i = 0; i < relationshipCount; i++) {
+                RelationshipType type = RelationshipType.fromValue(in.readUTF());
+                int idCount = in.readInt();
+                List<String> ids = new ArrayList<>(idCount);
+                for (int j = 0; j < idCount; j++) ids.add(in.readUTF());
+                relationships.add(Relationship.builder().type(type).ids(ids).build());
+            }
+            builder.relationships(relationships);
+        }
+        return builder.build();
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableInt(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeInt(value);
+    }
+
+    private static Integer readNullableInt(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static void writeNullableFloat(DataOutputStream out, Float value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeFloat(value);
+    }
+
+    private static Float readNullableFloat(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readFloat() : null;
+    }
+}
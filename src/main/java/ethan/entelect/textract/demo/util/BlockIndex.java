@@ -0,0 +1,178 @@
+package ethan.entelect.textract.demo.util;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+import software.amazon.awssdk.services.textract.model.Relationship;
+import software.amazon.awssdk.services.textract.model.RelationshipType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookup structure over every block of a document, built in a single pass.
+ * Each block id is hashed once and mapped to an int ordinal, assigned the first time the id is seen, whether as a
+ * block or as the target of a relationship. Blocks are held once, in the page slice they arrived in, and an
+ * ordinal records where in which slice its block sits. CHILD and VALUE relationships and parent links are kept
+ * as int arrays over the ordinals, so resolving a relationship is an array read rather than a string hash per id.
+ * Ids referenced before their block arrives count as unresolved until the block is added.
+ */
+class BlockIndex {
+    static final int NONE = -1;
+    private static final int[] NO_ORDINALS = new int[0];
+
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<List<Block>> pages = new ArrayList<>();
+    private final List<int[]> children = new ArrayList<>();
+    private final List<int[]> values = new ArrayList<>();
+    private int[] pageOf = new int[64];
+    private int[] positionOf = new int[64];
+    private int[] parents = new int[64];
+    private int size;
+    private int unresolved;
+
+    void Add(Block block) {
+        if (block.blockType().equals(BlockType.PAGE) || pages.isEmpty()) {
+            pages.add(new ArrayList<>());
+        }
+        List<Block> page = pages.get(pages.size() - 1);
+        int ordinal = Ordinal(block.id(), false);
+        pageOf[ordinal] = pages.size() - 1;
+        positionOf[ordinal] = page.size();
+        page.add(block);
+
+        List<Relationship> relationships = block.relationships();
+        if (relationships != null) {
+            for (Relationship r : relationships) {
+                boolean child = r.type().equals(RelationshipType.CHILD);
+                if (!child && !r.type().equals(RelationshipType.VALUE)) continue;
+                int[] related = Append(child ? children.get(ordinal) : values.get(ordinal), r.ids());
+                if (child) {
+                    children.set(ordinal, related);
+                    for (int c : related) parents[c] = ordinal;
+                } else {
+                    values.set(ordinal, related);
+                }
+            }
+        }
+    }
+
+    int GetOrdinal(String blockId) {
+        Integer ordinal = ordinals.get(blockId);
+        return ordinal == null ? NONE : ordinal;
+    }
+
+    /**
+     * Id of the block with the given ordinal, or null while it is only known from a reference.
+     */
+    String GetId(int ordinal) {
+        Block block = GetBlock(ordinal);
+        return block == null ? null : block.id();
+    }
+
+    Block GetBlock(int ordinal) {
+        if (ordinal == NONE || pageOf[ordinal] == NONE) return null;
+        return pages.get(pageOf[ordinal]).get(positionOf[ordinal]);
+    }
+
+    Block GetBlockById(String blockId) {
+        return GetBlock(GetOrdinal(blockId));
+    }
+
+    /**
+     * The document's blocks, one list per page in the order they arrived.
+     */
+    List<List<Block>> GetPages() {
+        return pages;
+    }
+
+    /**
+     * Page slice holding the block, or NONE while it is only known from a reference.
+     */
+    int GetPage(int ordinal) {
+        return ordinal == NONE ? NONE : pageOf[ordinal];
+    }
+
+    /**
+     * Position of the block within its page slice, only meaningful when {@link #GetPage} is not NONE.
+     */
+    int GetPosition(int ordinal) {
+        return positionOf[ordinal];
+    }
+
+    /**
+     * Ordinals of the block's CHILD relationships, or null when it has none.
+     */
+    int[] GetChildOrdinals(int ordinal) {
+        return ordinal == NONE ? null : children.get(ordinal);
+    }
+
+    /**
+     * Ordinals of the block's VALUE relationships, or null when it has none.
+     */
+    int[] GetValueOrdinals(int ordinal) {
+        return ordinal == NONE ? null : values.get(ordinal);
+    }
+
+    int GetParentOrdinal(int ordinal) {
+        return ordinal == NONE ? NONE : parents[ordinal];
+    }
+
+    List<Block> GetBlocks(int[] related) {
+        if (related == null || related.length == 0) return Collections.emptyList();
+        List<Block> resolved = new ArrayList<>(related.length);
+        for (int ordinal : related) {
+            Block b = GetBlock(ordinal);
+            if (b != null) resolved.add(b);
+        }
+        return resolved;
+    }
+
+    List<Block> GetChildren(int ordinal) {
+        return GetBlocks(GetChildOrdinals(ordinal));
+    }
+
+    /**
+     * Number of ids referenced by a relationship whose block has not been added.
+     */
+    int GetUnresolved() {
+        return unresolved;
+    }
+
+    int Size() {
+        return size;
+    }
+
+    private int Ordinal(String id, boolean reference) {
+        Integer existing = ordinals.get(id);
+        if (existing != null) {
+            if (!reference && pageOf[existing] == NONE) unresolved--;
+            return existing;
+        }
+        int ordinal = size++;
+        ordinals.put(id, ordinal);
+        children.add(null);
+        values.add(null);
+        if (ordinal == parents.length) {
+            pageOf = Arrays.copyOf(pageOf, ordinal * 2);
+            positionOf = Arrays.copyOf(positionOf, ordinal * 2);
+            parents = Arrays.copyOf(parents, ordinal * 2);
+        }
+        pageOf[ordinal] = NONE;
+        parents[ordinal] = NONE;
+        if (reference) unresolved++;
+        return ordinal;
+    }
+
+    private int[] Append(int[] existing, List<String> relatedIds) {
+        int offset = existing == null ? 0 : existing.length;
+        int[] related = existing == null ? new int[relatedIds.size()] : Arrays.copyOf(existing, offset + relatedIds.size());
+        for (int i = 0; i < relatedIds.size(); i++) {
+            related[offset + i] = Ordinal(relatedIds.get(i), true);
+        }
+        return related.length == 0 ? NO_ORDINALS : related;
+    }
+}
@@ -0,0 +1,62 @@
+package ethan.entelect.textract.demo.util;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+import software.amazon.awssdk.services.textract.model.SelectionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class Cell {
+    int RowIndex;
+    int RowSpan;
+    int ColumnIndex;
+    int ColumnSpan;
+    List<Object> Content;
+    float Confidence;
+    int Geometry;
+    int Id;
+    // Built on first use. Pages are shared across request threads, so the text is published through a volatile
+    // write; two threads racing here both build the same immutable string.
+    volatile String Text;
+
+    Cell(int ordinal, BlockIndex index, GeometryStore geometry) {
+        Block block = index.GetBlock(ordinal);
+        this.ColumnIndex = block.columnIndex();
+        this.ColumnSpan = block.columnSpan();
+        this.Confidence = block.confidence();
+        this.Content = new ArrayList<>();
+        this.Id = ordinal;
+        this.Geometry = geometry.Handle(ordinal);
+        this.RowIndex = block.rowIndex();
+        this.RowSpan = block.rowSpan();
+
+        int[] children = index.GetChildOrdinals(ordinal);
+        if (children == null) return;
+        for (int child : children) {
+            Block rb = index.GetBlock(child);
+            if (rb == null) continue;
+            if (rb.blockType().equals(BlockType.WORD)) {
+                this.Content.add(new Word(child, index, geometry));
+            } else if (rb.blockType().equals(BlockType.SELECTION_ELEMENT)) {
+                this.Content.add(new SelectionElement(child, index, geometry));
+            }
+        }
+    }
+
+    String GetText() {
+        String text = this.Text;
+        if (text == null) {
+            text = TextJoin.Join(this.Content,
+                    c -> c instanceof Word w ? w.Text : ((SelectionElement) c).SelectionStatus,
+                    c -> c instanceof Word ? " " : ", ");
+            this.Text = text;
+        }
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return this.GetText();
+    }
+}
@@ -0,0 +1,38 @@
+package ethan.entelect.textract.demo.util;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.EntityType;
+
+class Field {
+    FieldKey Key;
+    FieldValue Value;
+
+    Field(int ordinal, BlockIndex index, GeometryStore geometry) {
+        int[] keyChildren = index.GetChildOrdinals(ordinal);
+        if (keyChildren != null) {
+            this.Key = new FieldKey(ordinal, keyChildren, index, geometry);
+        }
+        int[] values = index.GetValueOrdinals(ordinal);
+        if (values != null) {
+            for (int valueOrdinal : values) {
+                Block v = index.GetBlock(valueOrdinal);
+                if (v == null || !v.entityTypes().contains(EntityType.VALUE)) continue;
+                int[] valueChildren = index.GetChildOrdinals(valueOrdinal);
+                if (valueChildren != null) {
+                    this.Value = new FieldValue(valueOrdinal, valueChildren, index, geometry);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        String k = this.Key == null ? "" : this.Key.toString();
+        String v = this.Value == null ? "" : this.Value.toString();
+        return String.format(
+                "%nField%n====%nKey: %s, Value: %s%n",
+                k,
+                v
+        );
+    }
+}
@@ -0,0 +1,43 @@
+package ethan.entelect.textract.demo.util;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class FieldKey {
+    float Confidence;
+    int Geometry;
+    int Id;
+    String Text;
+    List<Object> Content;
+
+    FieldKey(int ordinal, int[] children, BlockIndex index, GeometryStore geometry) {
+        this.Confidence = index.GetBlock(ordinal).confidence();
+        this.Id = ordinal;
+        this.Geometry = geometry.Handle(ordinal);
+        this.Text = "";
+        this.Content = new ArrayList<>();
+
+        List<String> words = new ArrayList<>();
+
+        for (int child : children) {
+            Block wordBlock = index.GetBlock(child);
+            if (wordBlock != null && wordBlock.blockType().equals(BlockType.WORD)) {
+                Word w = new Word(child, index, geometry);
+                this.Content.add(w);
+                words.add(w.Text);
+            }
+        }
+
+        if (!words.isEmpty()) {
+            this.Text = String.join(" ", words);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Text;
+    }
+}
@@ -0,0 +1,183 @@
+package ethan.entelect.textract.demo.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fuzzy lookup over the keys of one form, built once and reused for every search against it.
+ * Keys are normalised (lower case, punctuation dropped, whitespace collapsed) and broken into trigrams held
+ * in an inverted index, so a search only looks at keys that share text with the query. Candidates are kept
+ * if they contain the query, match it as an initialism either way round ("DOB" and "Date of birth"), or are
+ * close to it by trigram overlap or edit distance, and come back best match first.
+ */
+class FieldSearchIndex {
+    private static final double MIN_TRIGRAM_SIMILARITY = 0.4;
+
+    private final List<Field> fields;
+    private final String[] keys;
+    private final Map<Long, int[]> trigrams = new HashMap<>();
+    private final int[] trigramCounts;
+    private final Map<String, List<Integer>> exact = new HashMap<>();
+    private final Map<String, List<Integer>> initialisms = new HashMap<>();
+
+    FieldSearchIndex(List<Field> fields) {
+        // A snapshot, so searches running outside the form's lock never see a field added after the build.
+        this.fields = List.copyOf(fields);
+        this.keys = new String[fields.size()];
+        this.trigramCounts = new int[fields.size()];
+
+        Map<Long, List<Integer>> postings = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            String key = TextNormalizer.normalize(fields.get(i).Key.toString());
+            keys[i] = key;
+            exact.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            String initialism = Initialism(key);
+            if (initialism.length() > 1) initialisms.computeIfAbsent(initialism, k -> new ArrayList<>()).add(i);
+
+            long[] grams = Trigrams(key);
+            trigramCounts[i] = grams.length;
+            for (long gram : grams) {
+                List<Integer> list = postings.computeIfAbsent(gram, g -> new ArrayList<>());
+                // Trigrams come out sorted and distinct, so each key is listed at most once per trigram.
+                list.add(i);
+            }
+        }
+        for (Map.Entry<Long, List<Integer>> entry : postings.entrySet()) {
+            trigrams.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    List<Field> Search(String query) {
+        String q = TextNormalizer.normalize(query);
+        if (q.isEmpty()) return new ArrayList<>(fields);
+
+        int[] shared = new int[keys.length];
+        long[] queryGrams = Trigrams(q);
+        for (long gram : queryGrams) {
+            int[] posting = trigrams.get(gram);
+            if (posting == null) continue;
+            for (int i : posting) shared[i]++;
+        }
+        boolean[] candidate = new boolean[keys.length];
+        for (int i = 0; i < keys.length; i++) candidate[i] = shared[i] > 0;
+        // Queries shorter than a trigram cannot be found through the index, so check those against every key.
+        if (q.length() < 3) Arrays.fill(candidate, true);
+        for (int i : exact.getOrDefault(q, List.of())) candidate[i] = true;
+        String queryInitialism = Initialism(q);
+        for (int i : initialisms.getOrDefault(q.replace(" ", ""), List.of())) candidate[i] = true;
+        if (queryInitialism.length() > 1) {
+            for (int i : exact.getOrDefault(queryInitialism, List.of())) candidate[i] = true;
+        }
+
+        List<Match> matches = new ArrayList<>();
+        int maxDistance = Math.max(1, q.length() / 4);
+        int[] row = new int[q.length() + 1];
+        int[] previous = new int[q.length() + 1];
+        for (int i = 0; i < keys.length; i++) {
+            if (!candidate[i]) continue;
+            String key = keys[i];
+            int tier;
+            if (key.equals(q)) {
+                tier = 0;
+            } else if (key.contains(q) || Initialism(key).equals(q.replace(" ", "")) || (queryInitialism.length() > 1 && key.equals(queryInitialism))) {
+                tier = 1;
+            } else {
+                tier = 2;
+            }
+            int distance = EditDistance(q, key, maxDistance, row, previous);
+            double similarity = 2.0 * shared[i] / (queryGrams.length + trigramCounts[i]);
+            if (tier == 2 && distance > maxDistance && similarity < MIN_TRIGRAM_SIMILARITY) continue;
+            matches.add(new Match(i, tier, distance, similarity));
+        }
+
+        matches.sort((a, b) -> {
+            if (a.tier != b.tier) return Integer.compare(a.tier, b.tier);
+            if (a.distance != b.distance) return Integer.compare(a.distance, b.distance);
+            return Double.compare(b.similarity, a.similarity);
+        });
+        List<Field> result = new ArrayList<>(matches.size());
+        for (Match m : matches) result.add(fields.get(m.field));
+        return result;
+    }
+
+    Field Get(String key) {
+        List<Integer> hits = exact.get(TextNormalizer.normalize(key));
+        return hits == null ? null : fields.get(hits.get(0));
+    }
+
+    private static String Initialism(String key) {
+        StringBuilder initials = new StringBuilder();
+        boolean start = true;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == ' ') {
+                start = true;
+            } else if (start) {
+                initials.append(c);
+                start = false;
+            }
+        }
+        return initials.toString();
+    }
+
+    /**
+     * Distinct trigrams of the key padded with a space either side, packed three chars to a long and sorted.
+     */
+    private static long[] Trigrams(String key) {
+        int length = key.length() + 2;
+        if (length < 3) return new long[0];
+        long[] grams = new long[length - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) CharAt(key, i - 1) << 32) | ((long) CharAt(key, i) << 16) | CharAt(key, i + 1);
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) grams[distinct++] = grams[i];
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    private static char CharAt(String key, int i) {
+        return i < 0 || i >= key.length() ? ' ' : key.charAt(i);
+    }
+
+    /**
+     * Levenshtein distance between a and b, giving up with limit + 1 once every path is over the limit.
+     */
+    private static int EditDistance(String a, String b, int limit, int[] row, int[] previous) {
+        if (Math.abs(a.length() - b.length()) > limit) return limit + 1;
+        for (int i = 0; i <= a.length(); i++) previous[i] = i;
+        for (int j = 1; j <= b.length(); j++) {
+            row[0] = j;
+            int best = row[0];
+            for (int i = 1; i <= a.length(); i++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                row[i] = Math.min(Math.min(row[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+                best = Math.min(best, row[i]);
+            }
+            if (best > limit) return limit + 1;
+            int[] swap = previous;
+            previous = row;
+            row = swap;
+        }
+        return previous[a.length()];
+    }
+
+    private static class Match {
+        final int field;
+        final int tier;
+        final int distance;
+        final double similarity;
+
+        Match(int field, int tier, int distance, double similarity) {
+            this.field = field;
+            this.tier = tier;
+            this.distance = distance;
+            this.similarity = similarity;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ethan.entelect.textract.demo.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+class Form {
+    List<Field> Fields;
+    Map<String, Field> fieldMap;
+    private FieldSearchIndex searchIndex;
+
+    Form() {
+        this.Fields = new ArrayList<>();
+        this.fieldMap = new HashMap<>();
+    }
+
+    /**
+     * Fields are added, looked up and indexed under the form's lock, so a search never sees an index built
+     * before the last add, and an add never loses the reset of one being built.
+     */
+    synchronized void AddField(Field field) {
+        this.Fields.add(field);
+        this.fieldMap.put(field.Key.toString(), field);
+        this.searchIndex = null;
+    }
+
+    synchronized Field GetFieldByKey(String key) {
+        Field field = this.fieldMap.get(key);
+        return field != null ? field : this.GetSearchIndex().Get(key);
+    }
+
+    List<Field> SearchFieldsByKey(String key) {
+        return this.GetSearchIndex().Search(key);
+    }
+
+    private synchronized FieldSearchIndex GetSearchIndex() {
+        if (this.searchIndex == null) {
+            this.searchIndex = new FieldSearchIndex(this.Fields);
+        }
+        return this.searchIndex;
+    }
+
+    @Override
+    public String toString() {
+        return this.Fields.stream().map(Object::toString).collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,99 @@
+package ethan.entelect.textract.demo.util;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+import software.amazon.awssdk.services.textract.model.EntityType;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extracts form key/value pairs from Textract blocks in a single pass.
+ * The pass feeds every block into a {@link BlockIndex}, which maps ids to int ordinals and keeps CHILD and VALUE
+ * relationships as int arrays, and notes the ordinal of each KEY block in a growable int array. Keys are then
+ * joined to their values by array reads alone, with no id lookups and no second walk over the blocks. Selection
+ * elements contribute their selection status, so checkbox values are not empty. A key that appears more than
+ * once keeps every value, the later ones under a numbered key ("Name (2)").
+ */
+public final class FormExtractor {
+    private FormExtractor() {
+    }
+
+    public static Map<String, String> extract(List<Block> blocks) {
+        BlockIndex index = new BlockIndex();
+        int[] keys = new int[16];
+        int keyCount = 0;
+
+        for (Block block : blocks) {
+            index.Add(block);
+            if (block.blockType() == BlockType.KEY_VALUE_SET && block.entityTypes().contains(EntityType.KEY)) {
+                if (keyCount == keys.length) keys = Arrays.copyOf(keys, keyCount * 2);
+                keys[keyCount++] = index.GetOrdinal(block.id());
+            }
+        }
+
+        Map<String, String> formData = new LinkedHashMap<>(keyCount * 4 / 3 + 1);
+        StringBuilder text = new StringBuilder();
+        for (int k = 0; k < keyCount; k++) {
+            int[] values = index.GetValueOrdinals(keys[k]);
+            if (values == null || values.length == 0) continue;
+            Block value = index.GetBlock(values[0]);
+            if (value == null || !value.entityTypes().contains(EntityType.VALUE)) continue;
+            String keyText = join(text, index.GetChildOrdinals(keys[k]), index);
+            put(formData, keyText, join(text, index.GetChildOrdinals(values[0]), index));
+        }
+
+        return formData;
+    }
+
+    /**
+     * Extracts each page of a document on its own and merges the pages in order, as the services build a
+     * multi-page result, so fields rebuilt from stored blocks match the ones first returned. A page starts at
+     * each PAGE block.
+     */
+    public static Map<String, String> extractPages(List<Block> blocks) {
+        Map<String, String> formData = new LinkedHashMap<>();
+        int start = 0;
+        for (int i = 1; i <= blocks.size(); i++) {
+            if (i == blocks.size() || blocks.get(i).blockType() == BlockType.PAGE) {
+                merge(formData, extract(blocks.subList(start, i)));
+                start = i;
+            }
+        }
+        return formData;
+    }
+
+    /**
+     * Adds one page's fields after those already collected, numbering keys that are already present.
+     * Callers merge pages in page order so the numbering does not depend on which page was parsed first.
+     */
+    public static void merge(Map<String, String> formData, Map<String, String> pageFields) {
+        for (Map.Entry<String, String> field : pageFields.entrySet()) {
+            put(formData, field.getKey(), field.getValue());
+        }
+    }
+
+    private static void put(Map<String, String> formData, String key, String value) {
+        String numbered = key;
+        for (int n = 2; formData.containsKey(numbered); n++) numbered = key + " (" + n + ")";
+        formData.put(numbered, value);
+    }
+
+    private static String join(StringBuilder text, int[] ordinals, BlockIndex index) {
+        text.setLength(0);
+        if (ordinals == null) return "";
+        for (int ordinal : ordinals) {
+            Block block = index.GetBlock(ordinal);
+            if (block == null) continue;
+            String word;
+            if (block.blockType() == BlockType.WORD) word = block.text() == null ? "" : block.text();
+            else if (block.blockType() == BlockType.SELECTION_ELEMENT) word = block.selectionStatusAsString();
+            else continue;
+            if (text.length() > 0) text.append(' ');
+            text.append(word);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package ethan.entelect.textract.demo.util;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BoundingBox;
+import software.amazon.awssdk.services.textract.model.Geometry;
+import software.amazon.awssdk.services.textract.model.Point;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Geometry of every block on a page, kept as parallel float arrays and looked up by the block's ordinal.
+ * Model objects hold the int handle instead of the SDK Geometry, BoundingBox and Point objects, and spatial
+ * passes walk the arrays directly. Polygons are packed as x,y pairs into one array with per-block offsets.
+ */
+class GeometryStore {
+    static final int NONE = -1;
+
+    private final BlockIndex index;
+    private final int page;
+    private final int[] handles;
+    private float[] left;
+    private float[] top;
+    private float[] width;
+    private float[] height;
+    private int[] polygonStart;
+    private float[] polygon;
+    private int size;
+    private int polygonSize;
+
+    /**
+     * Geometry of the blocks in the given page slice of the index. Ordinals are handed out when an id is first
+     * seen, often as a reference from another page, so a page's ordinals are not contiguous; handles are kept by
+     * the block's position within its slice instead.
+     */
+    GeometryStore(BlockIndex index, int page) {
+        List<Block> blocks = index.GetPages().get(page);
+        int capacity = Math.max(blocks.size(), 1);
+        this.index = index;
+        this.page = page;
+        this.handles = new int[blocks.size()];
+        Arrays.fill(this.handles, NONE);
+        this.left = new float[capacity];
+        this.top = new float[capacity];
+        this.width = new float[capacity];
+        this.height = new float[capacity];
+        this.polygonStart = new int[capacity + 1];
+        // Textract polygons are four corner points per block.
+        this.polygon = new float[capacity * 8];
+
+        for (int i = 0; i < blocks.size(); i++) {
+            Add(i, blocks.get(i).geometry());
+        }
+    }
+
+    private void Add(int position, Geometry geometry) {
+        if (geometry == null || geometry.boundingBox() == null) return;
+
+        int handle = size++;
+        if (handle == left.length) Grow();
+        BoundingBox bb = geometry.boundingBox();
+        left[handle] = bb.left();
+        top[handle] = bb.top();
+        width[handle] = bb.width();
+        height[handle] = bb.height();
+
+        List<Point> points = geometry.polygon();
+        int pointCount = points == null ? 0 : points.size();
+        if (polygonSize + pointCount * 2 > polygon.length) {
+            polygon = Arrays.copyOf(polygon, Math.max(polygon.length * 2, polygonSize + pointCount * 2));
+        }
+        for (int i = 0; i < pointCount; i++) {
+            Point p = points.get(i);
+            polygon[polygonSize++] = p.x();
+            polygon[polygonSize++] = p.y();
+        }
+        polygonStart[handle + 1] = polygonSize;
+
+        handles[position] = handle;
+    }
+
+    /**
+     * Handle of the block with the given ordinal, or NONE if it has no geometry or is not on this page.
+     */
+    int Handle(int ordinal) {
+        return index.GetPage(ordinal) == page ? handles[index.GetPosition(ordinal)] : NONE;
+    }
+
+    int Size() {
+        return size;
+    }
+
+    float Left(int handle) {
+        return left[handle];
+    }
+
+    float Top(int handle) {
+        return top[handle];
+    }
+
+    float Width(int handle) {
+        return width[handle];
+    }
+
+    float Height(int handle) {
+        return height[handle];
+    }
+
+    float Right(int handle) {
+        return left[handle] + width[handle];
+    }
+
+    float Bottom(int handle) {
+        return top[handle] + height[handle];
+    }
+
+    int PolygonSize(int handle) {
+        return (polygonStart[handle + 1] - polygonStart[handle]) / 2;
+    }
+
+    float PolygonX(int handle, int point) {
+        return polygon[polygonStart[handle] + point * 2];
+    }
+
+    float PolygonY(int handle, int point) {
+        return polygon[polygonStart[handle] + point * 2 + 1];
+    }
+
+    String ToString(int handle) {
+        if (handle == NONE) return "BoundingBox: none";
+        return String.format("BoundingBox: width: %f, height: %f, left: %f, top: %f",
+                width[handle], height[handle], left[handle], top[handle]);
+    }
+
+    private void Grow() {
+        int capacity = left.length * 2;
+        left = Arrays.copyOf(left, capacity);
+        top = Arrays.copyOf(top, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        polygonStart = Arrays.copyOf(polygonStart, capacity + 1);
+    }
+}
@@ -0,0 +1,43 @@
+package ethan.entelect.textract.demo.util;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+
+import java.util.ArrayList;
+import java.util.stream.Collectors;
+
+class Line {
+    float Confidence;
+    int Geometry;
+    int Id;
+    ArrayList<Word> Words;
+    String Text;
+
+    Line(int ordinal, BlockIndex index, GeometryStore geometry) {
+        Block block = index.GetBlock(ordinal);
+        this.Confidence = block.confidence();
+        this.Id = ordinal;
+        this.Geometry = geometry.Handle(ordinal);
+        this.Text = block.text() == null ? "" : block.text();
+        this.Words = new ArrayList<>();
+
+        int[] children = index.GetChildOrdinals(ordinal);
+        if (children == null) return;
+        for (int child : children) {
+            Block wordBlock = index.GetBlock(child);
+            if (wordBlock != null && wordBlock.blockType().equals(BlockType.WORD)) {
+                this.Words.add(new Word(child, index, geometry));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+
+        return String.format(
+                "Line%n====%n%s%nWords%n----%n%s%n----%n",
+                this.Text,
+                this.Words.stream().map(Object::toString).collect(Collectors.joining(", "))
+        );
+    }
+}
@@ -0,0 +1,219 @@
+package ethan.entelect.textract.demo.util;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+import software.amazon.awssdk.services.textract.model.EntityType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class Page {
+    List<Block> Blocks;
+    String Text;
+    List<Line> Lines;
+    Form Form;
+    List<Table> Tables;
+    List<Object> Content;
+    GeometryStore Geometries;
+    int Geometry = GeometryStore.NONE;
+    int Id = BlockIndex.NONE;
+    int PageNumber;
+
+    private final BlockIndex index;
+    private final int slice;
+    private volatile boolean parsed;
+    private volatile SpatialIndex spatialIndex;
+    private volatile List<TableGrid> tableGrids;
+
+    /**
+     * The page held in the given slice of the index. Its blocks are the index's own list, not a copy.
+     */
+    Page(int slice, BlockIndex index) {
+        this.Blocks = index.GetPages().get(slice);
+        this.index = index;
+        this.slice = slice;
+
+        for (Block b : this.Blocks) {
+            if (b.blockType().equals(BlockType.PAGE)) {
+                this.Id = index.GetOrdinal(b.id());
+                this.PageNumber = b.page() == null ? 0 : b.page();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Lines, text, tables and form fields are only built from the page's blocks the first time one of them is asked for.
+     * They are all published together by the volatile write of parsed, so readers never see them half built.
+     */
+    private void EnsureParsed() {
+        if (this.parsed) return;
+        synchronized (this) {
+            if (this.parsed) return;
+            GeometryStore geometries = new GeometryStore(this.index, this.slice);
+            List<Line> lines = new ArrayList<>();
+            Form form = new Form();
+            List<Table> tables = new ArrayList<>();
+            List<Object> content = new ArrayList<>();
+
+            for (Block b : this.Blocks) {
+                if (b.blockType().equals(BlockType.LINE)) {
+                    Line l = new Line(this.index.GetOrdinal(b.id()), this.index, geometries);
+                    lines.add(l);
+                    content.add(l);
+                } else if (b.blockType().equals(BlockType.TABLE)) {
+                    Table t = new Table(this.index.GetOrdinal(b.id()), this.index, geometries);
+                    tables.add(t);
+                    content.add(t);
+                } else if (b.blockType().equals(BlockType.KEY_VALUE_SET)) {
+                    if (b.entityTypes().contains(EntityType.KEY)) {
+                        Field f = new Field(this.index.GetOrdinal(b.id()), this.index, geometries);
+                        if (f.Key != null) {
+                            form.AddField(f);
+                            content.add(f);
+                        }
+                    }
+                }
+            }
+
+            this.Geometries = geometries;
+            this.Geometry = geometries.Handle(this.Id);
+            this.Lines = lines;
+            this.Text = TextJoin.Join(lines, line -> line.Text, line -> System.lineSeparator());
+            this.Form = form;
+            this.Tables = tables;
+            this.Content = content;
+            this.parsed = true;
+        }
+    }
+
+    boolean IsParsed() {
+        return this.parsed;
+    }
+
+    GeometryStore GetGeometries() {
+        EnsureParsed();
+        return this.Geometries;
+    }
+
+    /**
+     * Grid over this page's word and line boxes for region, nearest and anchor queries, built on first use.
+     */
+    public SpatialIndex GetSpatialIndex() {
+        if (this.spatialIndex == null) {
+            synchronized (this) {
+                if (this.spatialIndex == null) {
+                    this.spatialIndex = new SpatialIndex(this.Blocks, this.index, this.GetGeometries());
+                }
+            }
+        }
+        return this.spatialIndex;
+    }
+
+    /**
+     * Grids of the tables on this page in reading order, built from the blocks on first use.
+     */
+    public List<TableGrid> GetTableGrids() {
+        if (this.tableGrids == null) {
+            synchronized (this) {
+                if (this.tableGrids == null) {
+                    GeometryStore geometries = this.GetGeometries();
+                    List<TableGrid> grids = new ArrayList<>();
+                    for (Block b : this.Blocks) {
+                        if (b.blockType().equals(BlockType.TABLE)) {
+                            grids.add(TableGrid.From(this.index.GetOrdinal(b.id()), this.index, geometries, this.PageNumber));
+                        }
+                    }
+                    this.tableGrids = grids;
+                }
+            }
+        }
+        return this.tableGrids;
+    }
+
+    List<Line> GetLines() {
+        EnsureParsed();
+        return this.Lines;
+    }
+
+    Form GetForm() {
+        EnsureParsed();
+        return this.Form;
+    }
+
+    List<Table> GetTables() {
+        EnsureParsed();
+        return this.Tables;
+    }
+
+    List<Object> GetContent() {
+        EnsureParsed();
+        return this.Content;
+    }
+
+    public List<Block> GetBlocks() {
+        return this.Blocks;
+    }
+
+    public String GetId() {
+        return this.index.GetId(this.Id);
+    }
+
+    public int GetPageNumber() {
+        return this.PageNumber;
+    }
+
+    public String GetText() {
+        EnsureParsed();
+        return this.Text;
+    }
+
+    List<IndexedText> GetLinesInReadingOrder() {
+        return new ReadingOrder(this.GetLines(), this.GetGeometries()).Arrange();
+    }
+
+    String GetTextInReadingOrder() {
+        return TextJoin.Join(this.GetLinesInReadingOrder(), line -> line.Text, line -> System.lineSeparator());
+    }
+
+    @Override
+    public String toString() {
+        List<String> result = new ArrayList<>();
+        result.add(String.format("Page%n====%n"));
+        for (Object c : this.GetContent()) {
+            result.add(String.format("%s%n", c));
+        }
+        return result.stream().map(Object::toString).collect(Collectors.joining(", "));
+    }
+
+    static class Column {
+        float Left;
+        float Right;
+
+        Column(float left, float right) {
+            this.Left = left;
+            this.Right = right;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Left: %f, Right: %f", this.Left, this.Right);
+        }
+    }
+
+    static class IndexedText {
+        int ColumnIndex;
+        String Text;
+
+        IndexedText(int columnIndex, String text) {
+            this.ColumnIndex = columnIndex;
+            this.Text = text;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%d] %s", this.ColumnIndex, this.Text);
+        }
+    }
+}
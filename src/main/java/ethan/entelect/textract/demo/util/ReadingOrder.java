@@ -0,0 +1,139 @@
+package ethan.entelect.textract.demo.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Orders the lines of a page the way a person would read them: column by column, top to bottom.
+ * Columns are found by sweeping line extents sorted by their left edge and merging the ones that overlap.
+ * Lines that straddle several columns (titles, full-width paragraphs) split the page into horizontal bands,
+ * and each band is read column by column before moving on to the next one.
+ */
+class ReadingOrder {
+    // Lines wider than this (in page widths) are not used to find columns, only placed into them.
+    private static final float MAX_COLUMN_LINE_WIDTH = 0.5f;
+    // Two extents belong to one column when they overlap by at least this share of the narrower one.
+    private static final float MIN_COLUMN_OVERLAP = 0.5f;
+
+    private final List<Line> lines;
+    private final float[] left;
+    private final float[] right;
+    private final float[] top;
+
+    ReadingOrder(List<Line> lines, GeometryStore geometries) {
+        this.lines = lines;
+        int count = lines.size();
+        this.left = new float[count];
+        this.right = new float[count];
+        this.top = new float[count];
+        for (int i = 0; i < count; i++) {
+            int handle = lines.get(i).Geometry;
+            if (handle == GeometryStore.NONE) continue;
+            left[i] = geometries.Left(handle);
+            right[i] = geometries.Right(handle);
+            top[i] = geometries.Top(handle);
+        }
+    }
+
+    List<Page.IndexedText> Arrange() {
+        int count = lines.size();
+        List<Page.IndexedText> ordered = new ArrayList<>(count);
+        if (count == 0) return ordered;
+
+        List<Page.Column> columns = FindColumns();
+        float[] columnLefts = new float[columns.size()];
+        for (int c = 0; c < columnLefts.length; c++) columnLefts[c] = columns.get(c).Left;
+
+        int[] column = new int[count];
+        boolean[] spanning = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            spanning[i] = CountOverlappedColumns(columns, columnLefts, i) > 1;
+            // Straddling lines are reported against the column they start in, everything else by its centre.
+            column[i] = ColumnAt(columns, columnLefts, spanning[i] ? left[i] : left[i] + (right[i] - left[i]) / 2);
+        }
+
+        Integer[] byTop = SortedBy(count, top);
+        List<Integer> band = new ArrayList<>();
+        Comparator<Integer> byColumnThenTop = Comparator.<Integer>comparingInt(i -> column[i]).thenComparingDouble(i -> top[i]);
+        for (int i : byTop) {
+            if (!spanning[i]) {
+                band.add(i);
+                continue;
+            }
+            EmitBand(band, byColumnThenTop, column, ordered);
+            ordered.add(new Page.IndexedText(column[i], lines.get(i).Text));
+        }
+        EmitBand(band, byColumnThenTop, column, ordered);
+        return ordered;
+    }
+
+    private List<Page.Column> FindColumns() {
+        int count = lines.size();
+        List<Integer> candidates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (right[i] - left[i] <= MAX_COLUMN_LINE_WIDTH) candidates.add(i);
+        }
+        if (candidates.isEmpty()) {
+            for (int i = 0; i < count; i++) candidates.add(i);
+        }
+        candidates.sort(Comparator.comparingDouble(i -> left[i]));
+
+        List<Page.Column> columns = new ArrayList<>();
+        Page.Column current = null;
+        for (int i : candidates) {
+            float l = left[i];
+            float r = right[i];
+            if (current != null) {
+                float overlap = Math.min(current.Right, r) - l;
+                float narrower = Math.min(current.Right - current.Left, r - l);
+                if (overlap > 0 && overlap >= MIN_COLUMN_OVERLAP * narrower) {
+                    current.Right = Math.max(current.Right, r);
+                    continue;
+                }
+            }
+            // Sorted by left edge, so an extent can only ever overlap the column opened last.
+            current = new Page.Column(l, r);
+            columns.add(current);
+        }
+        return columns;
+    }
+
+    private static int ColumnAt(List<Page.Column> columns, float[] columnLefts, float x) {
+        int index = Arrays.binarySearch(columnLefts, x);
+        if (index < 0) index = -index - 2;
+        if (index < 0) return 0;
+        if (index + 1 < columns.size() && x > columns.get(index).Right) {
+            // In the gutter between two columns, pick the closer one.
+            float toLeft = x - columns.get(index).Right;
+            float toRight = columnLefts[index + 1] - x;
+            if (toRight < toLeft) index++;
+        }
+        return index;
+    }
+
+    private int CountOverlappedColumns(List<Page.Column> columns, float[] columnLefts, int line) {
+        int first = ColumnAt(columns, columnLefts, left[line]);
+        int overlapped = 0;
+        for (int c = first; c < columns.size() && columnLefts[c] < right[line]; c++) {
+            Page.Column column = columns.get(c);
+            float overlap = Math.min(column.Right, right[line]) - Math.max(column.Left, left[line]);
+            if (overlap >= MIN_COLUMN_OVERLAP * (column.Right - column.Left)) overlapped++;
+        }
+        return overlapped;
+    }
+
+    private void EmitBand(List<Integer> band, Comparator<Integer> order, int[] column, List<Page.IndexedText> ordered) {
+        band.sort(order);
+        for (int i : band) ordered.add(new Page.IndexedText(column[i], lines.get(i).Text));
+        band.clear();
+    }
+
+    private static Integer[] SortedBy(int count, float[] key) {
+        Integer[] indices = new Integer[count];
+        for (int i = 0; i < count; i++) indices[i] = i;
+        Arrays.sort(indices, Comparator.comparingDouble(i -> key[i]));
+        return indices;
+    }
+}
@@ -0,0 +1,22 @@
+package ethan.entelect.textract.demo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class Row {
+    List<Cell> Cells;
+
+    Row() {
+        this.Cells = new ArrayList<>();
+    }
+
+    @Override
+    public String toString() {
+        List<String> result = new ArrayList<>();
+        for (Cell c : this.Cells) {
+            result.add(String.format("[%s]", c));
+        }
+        return result.stream().map(Object::toString).collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,19 @@
+package ethan.entelect.textract.demo.util;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.SelectionStatus;
+
+class SelectionElement {
+    float Confidence;
+    int Geometry;
+    int Id;
+    String SelectionStatus;
+
+    SelectionElement(int ordinal, BlockIndex index, GeometryStore geometry) {
+        Block block = index.GetBlock(ordinal);
+        this.Confidence = block.confidence();
+        this.Id = ordinal;
+        this.Geometry = geometry.Handle(ordinal);
+        this.SelectionStatus = block.selectionStatusAsString();
+    }
+}
@@ -0,0 +1,59 @@
+package ethan.entelect.textract.demo.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one execution.
+ * The first caller for a key runs the work; anyone arriving while it is still running shares its outcome.
+ * Keys are forgotten as soon as the work completes, so later calls run again.
+ */
+public class SingleFlight<K, V> {
+    private final Map<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    public V execute(K key, Supplier<V> work) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+        if (existing != null) return existing.join();
+
+        try {
+            V value = work.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    public CompletableFuture<V> submit(K key, Supplier<CompletableFuture<V>> work) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+        if (existing != null) return existing;
+
+        CompletableFuture<V> started;
+        try {
+            started = work.get();
+        } catch (RuntimeException e) {
+            started = CompletableFuture.failedFuture(e);
+        }
+        started.whenComplete((value, e) -> {
+            flights.remove(key, flight);
+            if (e != null) flight.completeExceptionally(e);
+            else flight.complete(value);
+        });
+        return flight;
+    }
+
+    public boolean isInFlight(K key) {
+        return flights.containsKey(key);
+    }
+
+    public int size() {
+        return flights.size();
+    }
+}
@@ -0,0 +1,235 @@
+package ethan.entelect.textract.demo.util;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Uniform grid over the word and line boxes of one page, for template style lookups such as "the words inside
+ * this rectangle" or "the value to the right of this label". Textract coordinates are normalised to the page,
+ * so the grid covers [0, 1] in both directions and is sized to roughly one box per cell. Cells store item
+ * indices in a single packed array; a box that crosses cell borders is listed in every cell it touches.
+ * The index is immutable once built; each query tracks the items it has visited in its own bit set, so
+ * concurrent queries need no locking.
+ */
+public class SpatialIndex {
+    private static final int MAX_CELLS_PER_SIDE = 128;
+
+    private final BlockIndex index;
+    private final GeometryStore geometries;
+    private final int[] itemOrdinals;
+    private final int[] itemHandles;
+    private final BlockType[] itemTypes;
+    private final int side;
+    private final int[] cellStart;
+    private final int[] cellItems;
+
+    SpatialIndex(List<Block> blocks, BlockIndex index, GeometryStore geometries) {
+        this.index = index;
+        this.geometries = geometries;
+
+        int count = 0;
+        int[] ordinals = new int[blocks.size()];
+        int[] handles = new int[blocks.size()];
+        BlockType[] types = new BlockType[blocks.size()];
+        for (Block b : blocks) {
+            BlockType type = b.blockType();
+            if (type != BlockType.WORD && type != BlockType.LINE) continue;
+            int ordinal = index.GetOrdinal(b.id());
+            int handle = geometries.Handle(ordinal);
+            if (handle == GeometryStore.NONE) continue;
+            ordinals[count] = ordinal;
+            handles[count] = handle;
+            types[count] = type;
+            count++;
+        }
+        this.itemOrdinals = Arrays.copyOf(ordinals, count);
+        this.itemHandles = Arrays.copyOf(handles, count);
+        this.itemTypes = Arrays.copyOf(types, count);
+
+        this.side = Math.max(1, Math.min(MAX_CELLS_PER_SIDE, (int) Math.ceil(Math.sqrt(count))));
+        this.cellStart = new int[side * side + 1];
+        for (int i = 0; i < count; i++) {
+            int h = itemHandles[i];
+            for (int row = Cell(geometries.Top(h)); row <= Cell(geometries.Bottom(h)); row++) {
+                for (int column = Cell(geometries.Left(h)); column <= Cell(geometries.Right(h)); column++) {
+                    cellStart[row * side + column + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < side * side; c++) cellStart[c + 1] += cellStart[c];
+        this.cellItems = new int[cellStart[side * side]];
+        int[] fill = Arrays.copyOf(cellStart, side * side);
+        for (int i = 0; i < count; i++) {
+            int h = itemHandles[i];
+            for (int row = Cell(geometries.Top(h)); row <= Cell(geometries.Bottom(h)); row++) {
+                for (int column = Cell(geometries.Left(h)); column <= Cell(geometries.Right(h)); column++) {
+                    cellItems[fill[row * side + column]++] = i;
+                }
+            }
+        }
+    }
+
+    public int Size() {
+        return itemOrdinals.length;
+    }
+
+    /**
+     * Blocks of the given type (or any indexed type when null) lying entirely inside the rectangle.
+     */
+    public List<Block> Within(float left, float top, float right, float bottom, BlockType type) {
+        return Search(left, top, right, bottom, type, true);
+    }
+
+    /**
+     * Blocks of the given type (or any indexed type when null) that overlap the rectangle at all.
+     */
+    public List<Block> Intersecting(float left, float top, float right, float bottom, BlockType type) {
+        return Search(left, top, right, bottom, type, false);
+    }
+
+    /**
+     * The block of the given type whose box is closest to the point, or null if the page has none.
+     */
+    public Block Nearest(float x, float y, BlockType type) {
+        BitSet seen = new BitSet(itemOrdinals.length);
+        int row = Cell(y);
+        int column = Cell(x);
+        int best = -1;
+        float bestDistance = Float.MAX_VALUE;
+        float cellSize = 1f / side;
+        for (int ring = 0; ring < side; ring++) {
+            for (int r = row - ring; r <= row + ring; r++) {
+                for (int c = column - ring; c <= column + ring; c++) {
+                    if (r < 0 || c < 0 || r >= side || c >= side) continue;
+                    if (Math.max(Math.abs(r - row), Math.abs(c - column)) != ring) continue;
+                    for (int k = cellStart[r * side + c]; k < cellStart[r * side + c + 1]; k++) {
+                        int item = cellItems[k];
+                        if (seen.get(item) || !Matches(item, type)) continue;
+                        seen.set(item);
+                        float distance = Distance(itemHandles[item], x, y);
+                        if (distance < bestDistance) {
+                            bestDistance = distance;
+                            best = item;
+                        }
+                    }
+                }
+            }
+            // Anything in the next ring is at least this far away.
+            if (best >= 0 && bestDistance <= ring * cellSize) break;
+        }
+        return best < 0 ? null : index.GetBlock(itemOrdinals[best]);
+    }
+
+    /**
+     * The closest block of the given type that starts to the right of the anchor and shares its vertical
+     * extent, e.g. the value printed beside a form label.
+     */
+    public Block RightOf(Block anchor, BlockType type) {
+        int anchorOrdinal = index.GetOrdinal(anchor.id());
+        int anchorHandle = geometries.Handle(anchorOrdinal);
+        if (anchorHandle == GeometryStore.NONE) return null;
+        BitSet seen = new BitSet(itemOrdinals.length);
+        float top = geometries.Top(anchorHandle);
+        float bottom = geometries.Bottom(anchorHandle);
+        float right = geometries.Right(anchorHandle);
+        int best = -1;
+        float bestDistance = Float.MAX_VALUE;
+        for (int column = Cell(right); column < side; column++) {
+            if (best >= 0 && (float) column / side - right > bestDistance) break;
+            for (int row = Cell(top); row <= Cell(bottom); row++) {
+                for (int k = cellStart[row * side + column]; k < cellStart[row * side + column + 1]; k++) {
+                    int item = cellItems[k];
+                    if (seen.get(item) || !Matches(item, type)) continue;
+                    seen.set(item);
+                    int h = itemHandles[item];
+                    if (itemOrdinals[item] == anchorOrdinal) continue;
+                    float centre = geometries.Top(h) + geometries.Height(h) / 2;
+                    float distance = geometries.Left(h) - right;
+                    if (centre < top || centre > bottom || distance < 0) continue;
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = item;
+                    }
+                }
+            }
+        }
+        return best < 0 ? null : index.GetBlock(itemOrdinals[best]);
+    }
+
+    /**
+     * The closest block of the given type that starts below the anchor and shares its horizontal extent,
+     * e.g. the value printed under a column heading.
+     */
+    public Block Below(Block anchor, BlockType type) {
+        int anchorOrdinal = index.GetOrdinal(anchor.id());
+        int anchorHandle = geometries.Handle(anchorOrdinal);
+        if (anchorHandle == GeometryStore.NONE) return null;
+        BitSet seen = new BitSet(itemOrdinals.length);
+        float left = geometries.Left(anchorHandle);
+        float right = geometries.Right(anchorHandle);
+        float bottom = geometries.Bottom(anchorHandle);
+        int best = -1;
+        float bestDistance = Float.MAX_VALUE;
+        for (int row = Cell(bottom); row < side; row++) {
+            if (best >= 0 && (float) row / side - bottom > bestDistance) break;
+            for (int column = Cell(left); column <= Cell(right); column++) {
+                for (int k = cellStart[row * side + column]; k < cellStart[row * side + column + 1]; k++) {
+                    int item = cellItems[k];
+                    if (seen.get(item) || !Matches(item, type)) continue;
+                    seen.set(item);
+                    int h = itemHandles[item];
+                    if (itemOrdinals[item] == anchorOrdinal) continue;
+                    float centre = geometries.Left(h) + geometries.Width(h) / 2;
+                    float distance = geometries.Top(h) - bottom;
+                    if (centre < left || centre > right || distance < 0) continue;
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = item;
+                    }
+                }
+            }
+        }
+        return best < 0 ? null : index.GetBlock(itemOrdinals[best]);
+    }
+
+    private List<Block> Search(float left, float top, float right, float bottom, BlockType type, boolean contained) {
+        // Items listed in several cells are checked once.
+        BitSet seen = new BitSet(itemOrdinals.length);
+        List<Block> found = new ArrayList<>();
+        for (int row = Cell(top); row <= Cell(bottom); row++) {
+            for (int column = Cell(left); column <= Cell(right); column++) {
+                for (int k = cellStart[row * side + column]; k < cellStart[row * side + column + 1]; k++) {
+                    int item = cellItems[k];
+                    if (seen.get(item) || !Matches(item, type)) continue;
+                    seen.set(item);
+                    int h = itemHandles[item];
+                    boolean hit = contained
+                            ? geometries.Left(h) >= left && geometries.Right(h) <= right && geometries.Top(h) >= top && geometries.Bottom(h) <= bottom
+                            : geometries.Left(h) <= right && geometries.Right(h) >= left && geometries.Top(h) <= bottom && geometries.Bottom(h) >= top;
+                    if (hit) found.add(index.GetBlock(itemOrdinals[item]));
+                }
+            }
+        }
+        return found;
+    }
+
+    private boolean Matches(int item, BlockType type) {
+        return type == null || itemTypes[item] == type;
+    }
+
+    private float Distance(int handle, float x, float y) {
+        float dx = Math.max(0, Math.max(geometries.Left(handle) - x, x - geometries.Right(handle)));
+        float dy = Math.max(0, Math.max(geometries.Top(handle) - y, y - geometries.Bottom(handle)));
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private int Cell(float coordinate) {
+        int cell = (int) (coordinate * side);
+        return Math.max(0, Math.min(side - 1, cell));
+    }
+}
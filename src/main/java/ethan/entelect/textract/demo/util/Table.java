@@ -0,0 +1,44 @@
+package ethan.entelect.textract.demo.util;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class Table {
+    List<Row> Rows;
+    float Confidence;
+    int Geometry;
+    int Id;
+
+    Table(int ordinal, BlockIndex index, GeometryStore geometry) {
+        this.Confidence = index.GetBlock(ordinal).confidence();
+        this.Id = ordinal;
+        this.Geometry = geometry.Handle(ordinal);
+        this.Rows = new ArrayList<>();
+
+        // Cells are grouped by the row they start in, whatever order Textract lists them in.
+        int[] children = index.GetChildOrdinals(ordinal);
+        if (children == null) return;
+        for (int child : children) {
+            Block cellBlock = index.GetBlock(child);
+            if (cellBlock == null || !cellBlock.blockType().equals(BlockType.CELL)) continue;
+            Cell cell = new Cell(child, index, geometry);
+            int row = Math.max(cell.RowIndex, 1);
+            while (this.Rows.size() < row) this.Rows.add(new Row());
+            this.Rows.get(row - 1).Cells.add(cell);
+        }
+    }
+
+    @Override
+    public String toString() {
+        List<String> result = new ArrayList<>();
+        result.add(String.format("Table%n====%n"));
+        for (Row r : this.Rows) {
+            result.add(String.format("Row%n====%n%s%n", r));
+        }
+        return result.stream().map(Object::toString).collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,364 @@
+package ethan.entelect.textract.demo.util;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+import software.amazon.awssdk.services.textract.model.EntityType;
+import software.amazon.awssdk.services.textract.model.Relationship;
+import software.amazon.awssdk.services.textract.model.RelationshipType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dense row-major grid of a table's cell text, built straight from the indexed CELL and MERGED_CELL blocks.
+ * Every slot a cell spans (by RowSpan/ColumnSpan, or through a merged cell) points at that cell's text, so a
+ * merged value is repeated across the slots it covers. Cell text is joined once into a shared array and the
+ * grid itself is just int slots into it, which keeps tables with tens of thousands of cells cheap to hold,
+ * export column by column and stitch across pages.
+ */
+public class TableGrid {
+    private static final int EMPTY = -1;
+
+    private final int rows;
+    private final int columns;
+    private final int headerRows;
+    private final int[] slots;
+    private final String[] texts;
+    private final int firstPage;
+    private final int lastPage;
+    private final float top;
+    private final float bottom;
+    private final float[] columnLefts;
+
+    private TableGrid(int rows, int columns, int headerRows, int[] slots, String[] texts,
+                      int firstPage, int lastPage, float top, float bottom, float[] columnLefts) {
+        this.rows = rows;
+        this.columns = columns;
+        this.headerRows = headerRows;
+        this.slots = slots;
+        this.texts = texts;
+        this.firstPage = firstPage;
+        this.lastPage = lastPage;
+        this.top = top;
+        this.bottom = bottom;
+        this.columnLefts = columnLefts;
+    }
+
+    static TableGrid From(int tableOrdinal, BlockIndex index, GeometryStore geometries, int pageNumber) {
+        Block table = index.GetBlock(tableOrdinal);
+        int[] children = index.GetChildOrdinals(tableOrdinal);
+        List<Block> cells = new ArrayList<>(children == null ? 0 : children.length);
+        int[] cellOrdinals = new int[children == null ? 0 : children.length];
+        int rows = 0;
+        int columns = 0;
+        if (children != null) {
+            for (int child : children) {
+                Block cell = index.GetBlock(child);
+                if (cell == null || cell.blockType() != BlockType.CELL) continue;
+                cellOrdinals[cells.size()] = child;
+                cells.add(cell);
+                rows = Math.max(rows, Index(cell.rowIndex()) + Span(cell.rowSpan()) - 1);
+                columns = Math.max(columns, Index(cell.columnIndex()) + Span(cell.columnSpan()) - 1);
+            }
+        }
+
+        int[] slots = new int[rows * columns];
+        Arrays.fill(slots, EMPTY);
+        String[] texts = new String[cells.size()];
+        boolean[] headerRow = new boolean[rows];
+        Arrays.fill(headerRow, true);
+        float[] columnLefts = new float[columns];
+        Arrays.fill(columnLefts, Float.NaN);
+        StringBuilder text = new StringBuilder();
+        for (int c = 0; c < cells.size(); c++) {
+            Block cell = cells.get(c);
+            texts[c] = CellText(cellOrdinals[c], index, text);
+            Fill(slots, columns, cell, c);
+            int cellHandle = geometries.Handle(cellOrdinals[c]);
+            if (cellHandle != GeometryStore.NONE && Span(cell.columnSpan()) == 1) {
+                int column = Index(cell.columnIndex()) - 1;
+                float left = geometries.Left(cellHandle);
+                if (Float.isNaN(columnLefts[column]) || left < columnLefts[column]) columnLefts[column] = left;
+            }
+            boolean header = cell.entityTypes() != null && cell.entityTypes().contains(EntityType.COLUMN_HEADER);
+            if (!header) headerRow[Index(cell.rowIndex()) - 1] = false;
+        }
+
+        List<Relationship> relationships = table.relationships();
+        if (relationships != null) {
+            for (Relationship r : relationships) {
+                if (r.type() != RelationshipType.MERGED_CELL) continue;
+                for (String mergedId : r.ids()) {
+                    int mergedOrdinal = index.GetOrdinal(mergedId);
+                    Block merged = index.GetBlock(mergedOrdinal);
+                    if (merged == null) continue;
+                    // A merged cell's text is its first non-empty child cell; the other children are the blank remainder.
+                    int source = EMPTY;
+                    for (Block child : index.GetChildren(mergedOrdinal)) {
+                        int slot = Slot(columns, child);
+                        if (slot >= 0 && slot < slots.length && slots[slot] != EMPTY && !texts[slots[slot]].isEmpty()) {
+                            source = slots[slot];
+                            break;
+                        }
+                    }
+                    if (source != EMPTY) Fill(slots, columns, merged, source);
+                }
+            }
+        }
+
+        int headerRows = 0;
+        while (headerRows < rows && headerRow[headerRows]) headerRows++;
+        int handle = geometries.Handle(tableOrdinal);
+        float top = handle == GeometryStore.NONE ? 0 : geometries.Top(handle);
+        float bottom = handle == GeometryStore.NONE ? 1 : geometries.Bottom(handle);
+        return new TableGrid(rows, columns, headerRows, slots, texts, pageNumber, pageNumber, top, bottom, columnLefts);
+    }
+
+    public int GetRowCount() {
+        return rows;
+    }
+
+    public int GetColumnCount() {
+        return columns;
+    }
+
+    public int GetHeaderRowCount() {
+        return headerRows;
+    }
+
+    public int GetFirstPage() {
+        return firstPage;
+    }
+
+    public int GetLastPage() {
+        return lastPage;
+    }
+
+    float GetTop() {
+        return top;
+    }
+
+    float GetBottom() {
+        return bottom;
+    }
+
+    /**
+     * Whether every column both tables have a position for starts within the tolerance of the same x.
+     * Columns only spanned by merged cells have no position of their own and are not compared.
+     */
+    boolean SameColumnPositions(TableGrid other, float tolerance) {
+        if (other.columns != columns) return false;
+        for (int c = 0; c < columns; c++) {
+            if (Float.isNaN(columnLefts[c]) || Float.isNaN(other.columnLefts[c])) continue;
+            if (Math.abs(columnLefts[c] - other.columnLefts[c]) > tolerance) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Text at the zero-based row and column, or an empty string for a slot no cell covers.
+     */
+    public String Get(int row, int column) {
+        int cell = slots[row * columns + column];
+        return cell == EMPTY ? "" : texts[cell];
+    }
+
+    /**
+     * One column per grid column, named after the header rows and holding the body rows. A column whose
+     * non-blank values all read as numbers is also exposed as doubles, with NaN for blanks.
+     */
+    public List<Column> ToColumns() {
+        List<Column> result = new ArrayList<>(columns);
+        int bodyRows = rows - headerRows;
+        for (int c = 0; c < columns; c++) {
+            StringBuilder name = new StringBuilder();
+            for (int r = 0; r < headerRows; r++) {
+                String part = Get(r, c);
+                if (part.isEmpty() || (r > 0 && part.equals(Get(r - 1, c)))) continue;
+                if (name.length() > 0) name.append(' ');
+                name.append(part);
+            }
+            String[] values = new String[bodyRows];
+            double[] numbers = new double[bodyRows];
+            boolean numeric = false;
+            boolean allNumbers = true;
+            for (int r = 0; r < bodyRows; r++) {
+                values[r] = Get(headerRows + r, c);
+                numbers[r] = ParseNumber(values[r]);
+                if (values[r].isBlank()) continue;
+                if (Double.isNaN(numbers[r])) allNumbers = false;
+                else numeric = true;
+            }
+            result.add(new Column(name.length() == 0 ? "column" + (c + 1) : name.toString(), values,
+                    numeric && allNumbers ? numbers : null));
+        }
+        return result;
+    }
+
+    /**
+     * Streams the grid as RFC 4180 CSV, header rows included, quoting only the values that need it.
+     */
+    public void WriteCsv(Writer out) throws IOException {
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (c > 0) out.write(',');
+                String value = Get(r, c);
+                if (NeedsQuotes(value)) {
+                    out.write('"');
+                    for (int i = 0; i < value.length(); i++) {
+                        char ch = value.charAt(i);
+                        if (ch == '"') out.write('"');
+                        out.write(ch);
+                    }
+                    out.write('"');
+                } else {
+                    out.write(value);
+                }
+            }
+            out.write("\r\n");
+        }
+    }
+
+    /**
+     * This table with the rows of the continuation appended. A header repeated at the top of the continuation
+     * is dropped so the body rows run on. The result keeps the column positions of the continuation, the part
+     * a further page would have to line up with.
+     */
+    TableGrid Append(TableGrid next) {
+        int skip = SameHeader(next) ? next.headerRows : 0;
+        int appended = next.rows - skip;
+        int[] merged = Arrays.copyOf(slots, (rows + appended) * columns);
+        String[] mergedTexts = Arrays.copyOf(texts, texts.length + next.texts.length);
+        System.arraycopy(next.texts, 0, mergedTexts, texts.length, next.texts.length);
+        for (int i = 0; i < appended * columns; i++) {
+            int cell = next.slots[skip * columns + i];
+            merged[rows * columns + i] = cell == EMPTY ? EMPTY : cell + texts.length;
+        }
+        return new TableGrid(rows + appended, columns, headerRows, merged, mergedTexts, firstPage, next.lastPage, top, next.bottom, next.columnLefts);
+    }
+
+    boolean SameHeader(TableGrid other) {
+        if (other.columns != columns || other.headerRows != headerRows) return false;
+        for (int r = 0; r < headerRows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (!Get(r, c).equals(other.Get(r, c))) return false;
+            }
+        }
+        return true;
+    }
+
+    private static String CellText(int cellOrdinal, BlockIndex index, StringBuilder text) {
+        text.setLength(0);
+        int[] children = index.GetChildOrdinals(cellOrdinal);
+        if (children == null) return "";
+        for (int child : children) {
+            Block b = index.GetBlock(child);
+            if (b == null) continue;
+            String part;
+            if (b.blockType() == BlockType.WORD) part = b.text();
+            else if (b.blockType() == BlockType.SELECTION_ELEMENT) part = b.selectionStatusAsString();
+            else continue;
+            if (part == null) continue;
+            if (text.length() > 0) text.append(' ');
+            text.append(part);
+        }
+        return text.toString();
+    }
+
+    private static void Fill(int[] slots, int columns, Block cell, int value) {
+        int row = Index(cell.rowIndex()) - 1;
+        int column = Index(cell.columnIndex()) - 1;
+        int rowSpan = Span(cell.rowSpan());
+        int columnSpan = Span(cell.columnSpan());
+        for (int r = row; r < row + rowSpan; r++) {
+            for (int c = column; c < column + columnSpan; c++) {
+                int slot = r * columns + c;
+                if (slot < slots.length) slots[slot] = value;
+            }
+        }
+    }
+
+    private static int Slot(int columns, Block cell) {
+        return (Index(cell.rowIndex()) - 1) * columns + Index(cell.columnIndex()) - 1;
+    }
+
+    private static int Index(Integer index) {
+        return index == null || index < 1 ? 1 : index;
+    }
+
+    private static int Span(Integer span) {
+        return span == null || span < 1 ? 1 : span;
+    }
+
+    private static boolean NeedsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == ',' || ch == '"' || ch == '\n' || ch == '\r') return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads amounts as printed on statements: currency symbols, thousands separators, a trailing percent sign
+     * and accounting style (negative) parentheses are accepted. Anything else is NaN.
+     */
+    static double ParseNumber(String value) {
+        StringBuilder digits = new StringBuilder(value.length());
+        boolean negative = false;
+        boolean seenDigit = false;
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                digits.append(ch);
+                seenDigit = true;
+            } else if (ch == '.') {
+                digits.append(ch);
+            } else if (ch == '-' && !seenDigit) {
+                negative = !negative;
+            } else if (ch == '(' && !seenDigit) {
+                negative = true;
+            } else if (ch == ',' || ch == ' ' || ch == ')' || ch == '%' || ch == '$' || ch == '\u20AC' || ch == '\u00A3') {
+                continue;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (!seenDigit || digits.indexOf(".") != digits.lastIndexOf(".")) return Double.NaN;
+        double number = Double.parseDouble(digits.toString());
+        return negative ? -number : number;
+    }
+
+    public static class Column {
+        private final String name;
+        private final String[] values;
+        private final double[] numbers;
+
+        Column(String name, String[] values, double[] numbers) {
+            this.name = name;
+            this.values = values;
+            this.numbers = numbers;
+        }
+
+        public String GetName() {
+            return name;
+        }
+
+        public String[] GetValues() {
+            return values;
+        }
+
+        public boolean IsNumeric() {
+            return numbers != null;
+        }
+
+        /**
+         * The values as doubles when the column is numeric, otherwise null.
+         */
+        public double[] GetNumbers() {
+            return numbers;
+        }
+    }
+}
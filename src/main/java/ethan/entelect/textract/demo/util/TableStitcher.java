@@ -0,0 +1,46 @@
+package ethan.entelect.textract.demo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the tables of a document page by page and joins tables that run over a page break.
+ * The last table on a page is continued by the first table on the next page when it reaches the bottom of its
+ * page, the continuation starts at the top of the next one, they have the same number of columns at the same x
+ * positions, and the continuation either has no header or repeats the same one.
+ */
+public class TableStitcher {
+    // Fraction of the page a table must reach (or start within) to count as running over the break.
+    private static final float PAGE_EDGE = 0.1f;
+    // How far apart, as a fraction of the page width, the left edges of matching columns may be.
+    private static final float COLUMN_TOLERANCE = 0.02f;
+
+    private final List<TableGrid> tables = new ArrayList<>();
+    private boolean lastTableEndsPage;
+    private int lastPageNumber = -1;
+
+    public void Add(Page page) {
+        List<TableGrid> grids = page.GetTableGrids();
+        for (int i = 0; i < grids.size(); i++) {
+            TableGrid grid = grids.get(i);
+            if (i == 0 && ContinuesPrevious(grid, page.GetPageNumber())) {
+                tables.set(tables.size() - 1, tables.get(tables.size() - 1).Append(grid));
+            } else {
+                tables.add(grid);
+            }
+        }
+        lastTableEndsPage = !grids.isEmpty() && grids.get(grids.size() - 1).GetBottom() >= 1 - PAGE_EDGE;
+        lastPageNumber = page.GetPageNumber();
+    }
+
+    public List<TableGrid> GetTables() {
+        return tables;
+    }
+
+    private boolean ContinuesPrevious(TableGrid grid, int pageNumber) {
+        if (tables.isEmpty() || !lastTableEndsPage || pageNumber != lastPageNumber + 1) return false;
+        TableGrid previous = tables.get(tables.size() - 1);
+        if (grid.GetTop() > PAGE_EDGE || !previous.SameColumnPositions(grid, COLUMN_TOLERANCE)) return false;
+        return grid.GetHeaderRowCount() == 0 || previous.SameHeader(grid);
+    }
+}
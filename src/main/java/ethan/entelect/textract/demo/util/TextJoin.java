@@ -0,0 +1,32 @@
+package ethan.entelect.textract.demo.util;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Builds model text from the parts it is made of. The length is summed first so the builder is sized once,
+ * which keeps joining linear for pages with thousands of lines and cells with thousands of words.
+ */
+final class TextJoin {
+    private TextJoin() {
+    }
+
+    static <T> String Join(List<T> items, Function<T, String> text, Function<T, String> suffix) {
+        int capacity = 0;
+        for (T item : items) {
+            capacity += Length(text.apply(item)) + Length(suffix.apply(item));
+        }
+        StringBuilder builder = new StringBuilder(capacity);
+        for (T item : items) {
+            String part = text.apply(item);
+            if (part != null) builder.append(part);
+            String end = suffix.apply(item);
+            if (end != null) builder.append(end);
+        }
+        return builder.toString();
+    }
+
+    private static int Length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
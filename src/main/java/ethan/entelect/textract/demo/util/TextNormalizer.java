@@ -0,0 +1,26 @@
+package ethan.entelect.textract.demo.util;
+
+/**
+ * Normal form used to compare key and value text: lower case, letters and digits only, single spaces between words.
+ */
+public final class TextNormalizer {
+    private TextNormalizer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null) return "";
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space && normalized.length() > 0) normalized.append(' ');
+                normalized.append(Character.toLowerCase(c));
+                space = false;
+            } else if (Character.isWhitespace(c)) {
+                space = true;
+            }
+        }
+        return normalized.toString();
+    }
+}
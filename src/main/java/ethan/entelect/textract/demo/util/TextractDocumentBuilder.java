@@ -0,0 +1,77 @@
+package ethan.entelect.textract.demo.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
+
+import java.util.function.Consumer;
+
+/**
+ * Incremental counterpart of {@link TextractDocument} for paginated GetDocumentAnalysis results.
+ * Responses are fed in as they are fetched. Textract lists every block of a page after its PAGE block and before
+ * the next one, so each page is indexed on its own and handed to the consumer as soon as the next PAGE block
+ * arrives, after which its blocks are released. A relationship pointing at a block on another page cannot be
+ * resolved in that page's index; the page is still emitted without waiting, the reference is skipped when the
+ * page is parsed, and such misses are counted and logged when the document is finished.
+ */
+public class TextractDocumentBuilder {
+    private static final Logger log = LoggerFactory.getLogger(TextractDocumentBuilder.class);
+
+    private final Consumer<Page> pageConsumer;
+    private BlockIndex currentPage;
+    private int pagesEmitted;
+    private int blocksSeen;
+    private int missingReferences;
+
+    public TextractDocumentBuilder(Consumer<Page> pageConsumer) {
+        this.pageConsumer = pageConsumer;
+    }
+
+    public void Add(GetDocumentAnalysisResponse response) {
+        if (response.blocks() == null) return;
+        for (Block block : response.blocks()) {
+            if (block.blockType().equals(BlockType.PAGE) && currentPage != null) {
+                Emit(currentPage);
+                currentPage = null;
+            }
+            if (currentPage == null) {
+                currentPage = new BlockIndex();
+            }
+            currentPage.Add(block);
+            blocksSeen++;
+        }
+    }
+
+    public void Finish() {
+        if (currentPage != null) {
+            Emit(currentPage);
+            currentPage = null;
+        }
+        if (missingReferences > 0) {
+            log.warn("{} block references across {} pages did not resolve within their page", missingReferences, pagesEmitted);
+        }
+    }
+
+    public int GetPagesEmitted() {
+        return pagesEmitted;
+    }
+
+    public int GetBlocksSeen() {
+        return blocksSeen;
+    }
+
+    /**
+     * References that pointed outside the page they were made on, summed over the pages emitted so far.
+     */
+    public int GetMissingReferences() {
+        return missingReferences;
+    }
+
+    private void Emit(BlockIndex page) {
+        missingReferences += page.GetUnresolved();
+        pageConsumer.accept(new Page(0, page));
+        pagesEmitted++;
+    }
+}
@@ -0,0 +1,23 @@
+package ethan.entelect.textract.demo.util;
+
+import software.amazon.awssdk.services.textract.model.Block;
+
+class Word {
+    float Confidence;
+    int Geometry;
+    int Id;
+    String Text;
+
+    Word(int ordinal, BlockIndex index, GeometryStore geometry) {
+        Block block = index.GetBlock(ordinal);
+        this.Confidence = block.confidence();
+        this.Id = ordinal;
+        this.Geometry = geometry.Handle(ordinal);
+        this.Text = block.text() == null ? "" : block.text();
+    }
+
+    @Override
+    public String toString() {
+        return Text;
+    }
+}
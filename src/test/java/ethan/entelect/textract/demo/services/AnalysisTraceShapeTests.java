@@ -0,0 +1,123 @@
+package ethan.entelect.textract.demo.services;
+
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockMultipartFile;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.textract.TextractClient;
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+import software.amazon.awssdk.services.textract.model.BoundingBox;
+import software.amazon.awssdk.services.textract.model.DocumentMetadata;
+import software.amazon.awssdk.services.textract.model.Geometry;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisRequest;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
+import software.amazon.awssdk.services.textract.model.JobStatus;
+import software.amazon.awssdk.services.textract.model.Relationship;
+import software.amazon.awssdk.services.textract.model.RelationshipType;
+import software.amazon.awssdk.services.textract.model.StartDocumentAnalysisRequest;
+import software.amazon.awssdk.services.textract.model.StartDocumentAnalysisResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs one document through the async /kvs pipeline against mocked AWS clients and checks the trace it leaves:
+ * a document span with one child span per stage, in the order the stages run.
+ */
+@SpringBootTest(properties = {
+        "textract.jobs.completion=in-memory",
+        "textract.tracing.in-memory.enabled=true"
+})
+// Tests run with a no-op tracer unless tracing is asked for.
+@AutoConfigureObservability(metrics = false)
+class AnalysisTraceShapeTests {
+    private static final String JOB_ID = "job-1";
+
+    @MockBean
+    private TextractClient textractClient;
+
+    @MockBean
+    private S3Client s3Client;
+
+    @Autowired
+    private AmazonService amazonService;
+
+    @Autowired
+    private InMemoryJobCompletionSource completions;
+
+    @Autowired
+    private RecentSpanExporter spans;
+
+    @Autowired
+    private SdkTracerProvider tracerProvider;
+
+    @Test
+    void asyncAnalysisHasOneChildSpanPerStage() throws Exception {
+        when(textractClient.startDocumentAnalysis(any(StartDocumentAnalysisRequest.class)))
+                .thenReturn(StartDocumentAnalysisResponse.builder().jobId(JOB_ID).build());
+        when(textractClient.getDocumentAnalysis(any(GetDocumentAnalysisRequest.class)))
+                .thenReturn(GetDocumentAnalysisResponse.builder()
+                        .jobStatus(JobStatus.SUCCEEDED)
+                        .documentMetadata(DocumentMetadata.builder().pages(1).build())
+                        .blocks(PageBlocks())
+                        .build());
+        // Held until the job is tracked, as a notification arriving before the job start returns would be.
+        completions.publish(JOB_ID, JobStatus.SUCCEEDED);
+        spans.reset();
+
+        AnalysisJob job = amazonService.analyzeDocAsync(new MockMultipartFile("file", "trace.pdf", "application/pdf",
+                "trace shape".getBytes(StandardCharsets.UTF_8)));
+
+        List<String> stages = List.of("textract.upload", "textract.job.start", "textract.job.wait",
+                "textract.results", "textract.parse", "textract.delete");
+        List<SpanData> children = List.of();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        // The delete runs after the result is handed back, so wait for the whole trace rather than the job.
+        while (System.nanoTime() < deadline) {
+            tracerProvider.forceFlush().join(1, TimeUnit.SECONDS);
+            SpanData document = spans.getFinishedSpans().stream()
+                    .filter(span -> span.getName().equals("textract.document"))
+                    .findFirst()
+                    .orElse(null);
+            if (document != null) {
+                children = spans.getTrace(document.getTraceId()).stream()
+                        .filter(span -> span.getParentSpanId().equals(document.getSpanId()))
+                        .sorted(Comparator.comparingLong(SpanData::getStartEpochNanos))
+                        .toList();
+                if (children.size() >= stages.size()) break;
+            }
+            Thread.sleep(50);
+        }
+
+        assertTrue(job.isDone(), "analysis did not finish");
+        assertEquals(stages, children.stream().map(SpanData::getName).toList());
+    }
+
+    private static List<Block> PageBlocks() {
+        Geometry geometry = Geometry.builder()
+                .boundingBox(BoundingBox.builder().left(0.1f).top(0.1f).width(0.2f).height(0.05f).build())
+                .build();
+        return List.of(
+                Block.builder().id("page").blockType(BlockType.PAGE).page(1).geometry(geometry)
+                        .relationships(Relationship.builder().type(RelationshipType.CHILD).ids("line").build())
+                        .build(),
+                Block.builder().id("line").blockType(BlockType.LINE).text("Total").confidence(99f).geometry(geometry)
+                        .relationships(Relationship.builder().type(RelationshipType.CHILD).ids("word").build())
+                        .build(),
+                Block.builder().id("word").blockType(BlockType.WORD).text("Total").confidence(99f).geometry(geometry)
+                        .build());
+    }
+}
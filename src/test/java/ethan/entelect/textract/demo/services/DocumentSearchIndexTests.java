@@ -0,0 +1,111 @@
+package ethan.entelect.textract.demo.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DocumentSearchIndexTests {
+
+    @Test
+    void keyValueAndWordsIntersect() throws IOException {
+        DocumentSearchIndex index = new DocumentSearchIndex("", 1024);
+        index.add("a", Map.of("Name", "Alice", "City", "Cape Town"), Lines("Invoice for services"));
+        index.add("b", Map.of("Name", "Bob", "City", "Cape Town"), Lines("Invoice for goods"));
+        index.add("c", Map.of("Name", "Alice", "City", "Durban"), Lines("Receipt for goods"));
+
+        assertEquals(List.of("a", "c"), DocumentIds(index.search("name", "alice", null, 10)));
+        assertEquals(List.of("a", "b"), DocumentIds(index.search(null, null, "invoice", 10)));
+        assertEquals(List.of("c"), DocumentIds(index.search("Name", "Alice", "goods", 10)));
+        assertEquals(List.of("b"), DocumentIds(index.search(null, null, "cape goods", 10)));
+        assertEquals(List.of(), index.search("name", "carol", null, 10));
+        assertEquals(List.of(), index.search(null, null, null, 10));
+        assertEquals(1, index.search("city", null, null, 1).size());
+    }
+
+    @Test
+    void hitReportsTheFieldWhoseValueMatched() throws IOException {
+        DocumentSearchIndex index = new DocumentSearchIndex("", 1024);
+        Map<String, String> fields = new LinkedHashMap<>();
+        // Both keys normalise to "name".
+        fields.put("Name:", "Alice");
+        fields.put("NAME", "Bob");
+        index.add("a", fields, List.of());
+
+        Map<String, String> hit = index.search("name", "bob", null, 10).get(0);
+
+        assertEquals("a", hit.get("documentId"));
+        assertEquals("NAME", hit.get("key"));
+        assertEquals("Bob", hit.get("value"));
+    }
+
+    @Test
+    void keyOnlyHitReportsTheFirstFieldInExtractionOrder() throws IOException {
+        DocumentSearchIndex index = new DocumentSearchIndex("", 1024);
+        for (int i = 0; i < 20; i++) {
+            Map<String, String> fields = new LinkedHashMap<>();
+            fields.put("Name (" + i + ")", "first");
+            fields.put("Name:", "second");
+            fields.put("NAME", "third");
+            index.add("doc" + i, fields, List.of());
+        }
+
+        for (Map<String, String> hit : index.search("name", null, null, 20)) {
+            assertEquals("Name:", hit.get("key"));
+            assertEquals("second", hit.get("value"));
+        }
+    }
+
+    @Test
+    void segmentsAreReplayedOnStartup(@TempDir Path dir) throws IOException {
+        // Small segments, so the documents are spread over more than one file.
+        DocumentSearchIndex index = new DocumentSearchIndex(dir.toString(), 1);
+        index.add("a", Map.of("Name", "Alice"), Lines("Invoice"));
+        index.add("b", Map.of("Name", "Bob"), Lines("Receipt"));
+        index.shutdown();
+
+        DocumentSearchIndex reopened = new DocumentSearchIndex(dir.toString(), 1);
+
+        assertEquals(2, reopened.size());
+        assertEquals(List.of("b"), DocumentIds(reopened.search("name", "bob", "receipt", 10)));
+        reopened.shutdown();
+    }
+
+    @Test
+    void tornRecordAtTheEndOfASegmentIsSkipped(@TempDir Path dir) throws IOException {
+        DocumentSearchIndex index = new DocumentSearchIndex(dir.toString(), 1 << 20);
+        index.add("a", Map.of("Name", "Alice"), Lines("Invoice"));
+        index.shutdown();
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        // The start of a record whose length runs past the end of the file, as left by a crash mid-append.
+        Files.write(segment, new byte[]{1, 0x7f, 0, 0, 0}, StandardOpenOption.APPEND);
+
+        DocumentSearchIndex reopened = new DocumentSearchIndex(dir.toString(), 1 << 20);
+
+        assertEquals(1, reopened.size());
+        assertEquals(List.of("a"), DocumentIds(reopened.search("name", "alice", null, 10)));
+        reopened.shutdown();
+    }
+
+    private static List<Block> Lines(String... lines) {
+        return Stream.of(lines).map(text -> Block.builder().blockType(BlockType.LINE).text(text).build()).toList();
+    }
+
+    private static List<String> DocumentIds(List<Map<String, String>> hits) {
+        return hits.stream().map(hit -> hit.get("documentId")).toList();
+    }
+}
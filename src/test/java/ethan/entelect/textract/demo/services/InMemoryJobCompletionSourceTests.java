@@ -0,0 +1,128 @@
+package ethan.entelect.textract.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import software.amazon.awssdk.services.textract.TextractClient;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisRequest;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
+import software.amazon.awssdk.services.textract.model.JobStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InMemoryJobCompletionSourceTests {
+    private final TextractClient textractClient = mock(TextractClient.class);
+    private final GetDocumentAnalysisResponse results = GetDocumentAnalysisResponse.builder()
+            .jobStatus(JobStatus.SUCCEEDED)
+            .build();
+    private JobRegistry jobRegistry;
+    private InMemoryJobCompletionSource completions;
+
+    @BeforeEach
+    void setUp() {
+        when(textractClient.getDocumentAnalysis(any(GetDocumentAnalysisRequest.class))).thenReturn(results);
+        jobRegistry = new JobRegistry(60_000, 60_000);
+        AnalysisTracing tracing = new AnalysisTracing(new DefaultListableBeanFactory().getBeanProvider(Tracer.class));
+        // Results are fetched on the publishing thread, so each future is complete when publish returns.
+        completions = new InMemoryJobCompletionSource(textractClient, Runnable::run,
+                new AnalysisMetrics(new SimpleMeterRegistry(), jobRegistry), tracing, 60_000, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobRegistry.shutdown();
+    }
+
+    @Test
+    void succeededJobCompletesWithTheFirstResultPage() throws Exception {
+        CompletableFuture<GetDocumentAnalysisResponse> job = completions.track("job-1");
+        assertFalse(job.isDone());
+
+        completions.publish("job-1", JobStatus.SUCCEEDED);
+
+        assertSame(results, job.get());
+        verify(textractClient).getDocumentAnalysis(any(GetDocumentAnalysisRequest.class));
+    }
+
+    @Test
+    void notificationPublishedBeforeTrackingIsHeldUntilTracked() throws Exception {
+        completions.publish("job-1", JobStatus.SUCCEEDED);
+        verify(textractClient, never()).getDocumentAnalysis(any(GetDocumentAnalysisRequest.class));
+
+        CompletableFuture<GetDocumentAnalysisResponse> job = completions.track("job-1");
+
+        assertTrue(job.isDone());
+        assertSame(results, job.get());
+    }
+
+    @Test
+    void failedJobCompletesExceptionally() {
+        CompletableFuture<GetDocumentAnalysisResponse> job = completions.track("job-1");
+
+        completions.publish("job-1", JobStatus.FAILED, "unsupported document");
+
+        ExecutionException error = assertThrows(ExecutionException.class, job::get);
+        TextractJobException cause = assertInstanceOf(TextractJobException.class, error.getCause());
+        assertEquals("job-1", cause.getJobId());
+        assertTrue(cause.getMessage().contains("unsupported document"));
+        verify(textractClient, never()).getDocumentAnalysis(any(GetDocumentAnalysisRequest.class));
+    }
+
+    @Test
+    void notificationRacingTheJobStartIsNeverLost() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 500; i++) {
+                String jobId = "job-" + i;
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> published = threads.submit(() -> {
+                    start.await();
+                    completions.publish(jobId, JobStatus.SUCCEEDED);
+                    return null;
+                });
+                Future<CompletableFuture<GetDocumentAnalysisResponse>> tracked = threads.submit(() -> {
+                    start.await();
+                    return completions.track(jobId);
+                });
+                start.countDown();
+                published.get();
+
+                assertSame(results, tracked.get().get(5, TimeUnit.SECONDS), jobId);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    void notificationOnlyCompletesItsOwnJob() {
+        CompletableFuture<GetDocumentAnalysisResponse> first = completions.track("job-1");
+        CompletableFuture<GetDocumentAnalysisResponse> second = completions.track("job-2");
+
+        completions.publish("job-2", JobStatus.SUCCEEDED);
+
+        assertFalse(first.isDone());
+        assertTrue(second.isDone());
+    }
+}
@@ -0,0 +1,84 @@
+package ethan.entelect.textract.demo.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.textract.TextractClient;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisRequest;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
+import software.amazon.awssdk.services.textract.model.JobStatus;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SqsJobCompletionSourceTests {
+    private final TextractClient textractClient = mock(TextractClient.class);
+    private final SqsClient sqsClient = mock(SqsClient.class);
+    private final JobRegistry jobRegistry = new JobRegistry(60_000, 60_000);
+    private final SqsJobCompletionSource completions = new SqsJobCompletionSource(textractClient, sqsClient,
+            new ObjectMapper(), Runnable::run, new AnalysisMetrics(new SimpleMeterRegistry(), jobRegistry),
+            new AnalysisTracing(new DefaultListableBeanFactory().getBeanProvider(Tracer.class)),
+            "topic", "role", "queue", 60_000, 1000, 50);
+
+    @AfterEach
+    void tearDown() {
+        completions.stop();
+        jobRegistry.shutdown();
+    }
+
+    @Test
+    void unreadableMessageIsDeletedWithoutHoldingUpItsBatch() throws Exception {
+        GetDocumentAnalysisResponse results = GetDocumentAnalysisResponse.builder().jobStatus(JobStatus.SUCCEEDED).build();
+        when(textractClient.getDocumentAnalysis(any(GetDocumentAnalysisRequest.class))).thenReturn(results);
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(
+                        Message("bad", "not json"),
+                        Message("good", "{\"JobId\":\"job-1\",\"Status\":\"SUCCEEDED\"}"),
+                        Message("other", "{\"JobId\":\"job-2\",\"Status\":\"SUCCEEDED\"}")).build())
+                .thenAnswer(invocation -> {
+                    Thread.sleep(50);
+                    return ReceiveMessageResponse.builder().build();
+                });
+        CompletableFuture<GetDocumentAnalysisResponse> job = completions.track("job-1");
+
+        completions.start();
+
+        assertSame(results, job.get(5, TimeUnit.SECONDS));
+        verify(sqsClient, timeout(5000)).deleteMessage(Delete("bad"));
+        verify(sqsClient, timeout(5000)).deleteMessage(Delete("good"));
+        // Not ours and not stale yet, so it stays on the queue for the instance that started job-2.
+        verify(sqsClient, never()).deleteMessage(Delete("other"));
+    }
+
+    private static Message Message(String id, String body) {
+        return Message.builder()
+                .messageId(id)
+                .receiptHandle(id)
+                .body(body)
+                .attributes(Map.of(MessageSystemAttributeName.SENT_TIMESTAMP, String.valueOf(System.currentTimeMillis()),
+                        MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT, "1"))
+                .build();
+    }
+
+    private static DeleteMessageRequest Delete(String receiptHandle) {
+        return DeleteMessageRequest.builder().queueUrl("queue").receiptHandle(receiptHandle).build();
+    }
+}
@@ -0,0 +1,93 @@
+package ethan.entelect.textract.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.services.textract.TextractClient;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisRequest;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
+import software.amazon.awssdk.services.textract.model.JobStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TextractJobTrackerTests {
+    private final TextractClient textractClient = mock(TextractClient.class);
+    private final JobRegistry jobRegistry = new JobRegistry(60_000, 60_000);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private TextractJobTracker tracker;
+
+    @AfterEach
+    void tearDown() {
+        if (tracker != null) tracker.shutdown();
+        jobRegistry.shutdown();
+    }
+
+    @Test
+    void rejectedPollIsRescheduled() throws Exception {
+        GetDocumentAnalysisResponse results = GetDocumentAnalysisResponse.builder().jobStatus(JobStatus.SUCCEEDED).build();
+        when(textractClient.getDocumentAnalysis(any(GetDocumentAnalysisRequest.class))).thenReturn(results);
+        AtomicInteger submissions = new AtomicInteger();
+        // Saturated for the first two submissions, then runs the poll.
+        tracker = Tracker(task -> {
+            if (submissions.incrementAndGet() <= 2) throw new RejectedExecutionException("full");
+            task.run();
+        });
+
+        CompletableFuture<GetDocumentAnalysisResponse> job = tracker.track("job-1");
+
+        assertSame(results, job.get(5, TimeUnit.SECONDS));
+        verify(textractClient).getDocumentAnalysis(any(GetDocumentAnalysisRequest.class));
+    }
+
+    @Test
+    void jobFailsOncePollExecutorHasShutDown() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.initialize();
+        executor.shutdown();
+        tracker = Tracker(executor);
+
+        CompletableFuture<GetDocumentAnalysisResponse> job = tracker.track("job-1");
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> job.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TextractJobException.class, error.getCause());
+        verify(textractClient, never()).getDocumentAnalysis(any(GetDocumentAnalysisRequest.class));
+    }
+
+    @Test
+    void pollSchedulerIsMetered() {
+        tracker = Tracker(Runnable::run);
+
+        assertNotNull(registry.find("executor.pool.size").tag("name", "jobPollScheduler").gauge());
+        assertNotNull(registry.find("executor.queued").tag("name", "jobPollScheduler").gauge());
+    }
+
+    private TextractJobTracker Tracker(Executor pollExecutor) {
+        TextractJobTracker created = new TextractJobTracker(textractClient, new AnalysisMetrics(registry, jobRegistry),
+                new AnalysisTracing(new DefaultListableBeanFactory().getBeanProvider(Tracer.class)), pollExecutor, 1);
+        ReflectionTestUtils.setField(created, "initialDelayMs", 10L);
+        ReflectionTestUtils.setField(created, "maxDelayMs", 10L);
+        ReflectionTestUtils.setField(created, "backoffMultiplier", 1.5);
+        ReflectionTestUtils.setField(created, "timeoutMs", 60_000L);
+        ReflectionTestUtils.setField(created, "pageSize", 1000);
+        return created;
+    }
+}
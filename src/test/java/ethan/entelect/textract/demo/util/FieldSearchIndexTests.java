@@ -0,0 +1,82 @@
+package ethan.entelect.textract.demo.util;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.textract.model.Block;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ethan.entelect.textract.demo.util.TestBlocks.Key;
+import static ethan.entelect.textract.demo.util.TestBlocks.Page;
+import static ethan.entelect.textract.demo.util.TestBlocks.Response;
+import static ethan.entelect.textract.demo.util.TestBlocks.Value;
+import static ethan.entelect.textract.demo.util.TestBlocks.Word;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FieldSearchIndexTests {
+
+    @Test
+    void initialismQueryRanksSpelledOutKeyFirst() {
+        FieldSearchIndex index = new FieldSearchIndex(Fields("Name", "Job", "Date of birth", "Address"));
+
+        List<String> keys = Keys(index.Search("DOB"));
+
+        assertEquals("Date of birth", keys.get(0));
+        // One edit away from the query, so still listed, but after the initialism match.
+        assertTrue(keys.contains("Job"));
+        assertTrue(keys.indexOf("Date of birth") < keys.indexOf("Job"));
+    }
+
+    @Test
+    void spelledOutQueryFindsInitialismKey() {
+        FieldSearchIndex index = new FieldSearchIndex(Fields("Name", "D.O.B.", "Address"));
+
+        assertEquals("D.O.B.", Keys(index.Search("Date of birth")).get(0));
+    }
+
+    @Test
+    void exactMatchRanksBeforeContainingKeys() {
+        FieldSearchIndex index = new FieldSearchIndex(Fields("Account name", "Name", "Surname"));
+
+        List<String> keys = Keys(index.Search("name"));
+
+        assertEquals("Name", keys.get(0));
+        assertEquals(3, keys.size());
+    }
+
+    @Test
+    void misspelledQueryFindsKey() {
+        FieldSearchIndex index = new FieldSearchIndex(Fields("Name", "Date of birth", "Address"));
+
+        assertEquals("Address", Keys(index.Search("Adress")).get(0));
+    }
+
+    @Test
+    void getOnlyMatchesNormalisedKeys() {
+        FieldSearchIndex index = new FieldSearchIndex(Fields("Date of birth:", "Name"));
+
+        assertEquals("Date of birth:", index.Get("date of  birth").Key.toString());
+        assertNull(index.Get("DOB"));
+    }
+
+    /**
+     * Fields parsed from a one-page document with one KEY block per key, each with a single word value.
+     */
+    private static List<Field> Fields(String... keys) {
+        List<Block> blocks = new ArrayList<>();
+        blocks.add(Page("page", 1));
+        for (int i = 0; i < keys.length; i++) {
+            blocks.add(Key("key" + i, "value" + i, "key-word" + i));
+            blocks.add(Word("key-word" + i, keys[i]));
+            blocks.add(Value("value" + i, "value-word" + i));
+            blocks.add(Word("value-word" + i, "value " + i));
+        }
+        return new TextractDocument(List.of(Response(blocks.toArray(new Block[0])))).GetFields(0);
+    }
+
+    private static List<String> Keys(List<Field> fields) {
+        return fields.stream().map(f -> f.Key.toString()).toList();
+    }
+}
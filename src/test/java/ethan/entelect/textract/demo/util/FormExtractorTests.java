@@ -0,0 +1,87 @@
+package ethan.entelect.textract.demo.util;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.textract.model.SelectionStatus;
+
+import java.util.List;
+import java.util.Map;
+
+import static ethan.entelect.textract.demo.util.TestBlocks.Key;
+import static ethan.entelect.textract.demo.util.TestBlocks.Page;
+import static ethan.entelect.textract.demo.util.TestBlocks.Selection;
+import static ethan.entelect.textract.demo.util.TestBlocks.Value;
+import static ethan.entelect.textract.demo.util.TestBlocks.Word;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FormExtractorTests {
+
+    @Test
+    void joinsKeysToValuesInDocumentOrder() {
+        Map<String, String> fields = FormExtractor.extract(List.of(
+                Page("page", 1),
+                // Values may be listed before the key that points at them.
+                Value("v1", "w3", "w4"),
+                Word("w3", "Alice"),
+                Word("w4", "Smith"),
+                Key("k1", "v1", "w1", "w2"),
+                Word("w1", "Full"),
+                Word("w2", "name"),
+                Key("k2", "v2", "w5"),
+                Word("w5", "Married"),
+                Value("v2", "s1"),
+                Selection("s1", SelectionStatus.SELECTED)));
+
+        assertEquals(List.of("Full name", "Married"), List.copyOf(fields.keySet()));
+        assertEquals("Alice Smith", fields.get("Full name"));
+        assertEquals("SELECTED", fields.get("Married"));
+    }
+
+    @Test
+    void repeatedKeysAreNumbered() {
+        Map<String, String> fields = FormExtractor.extract(List.of(
+                Page("page", 1),
+                Key("k1", "v1", "w1"),
+                Word("w1", "Name"),
+                Value("v1", "w2"),
+                Word("w2", "Alice"),
+                Key("k2", "v2", "w3"),
+                Word("w3", "Name"),
+                Value("v2", "w4"),
+                Word("w4", "Bob")));
+
+        assertEquals(Map.of("Name", "Alice", "Name (2)", "Bob"), fields);
+    }
+
+    @Test
+    void pagesAreExtractedOnTheirOwnAndMergedInOrder() {
+        Map<String, String> fields = FormExtractor.extractPages(List.of(
+                Page("p1", 1),
+                Key("k1", "v1", "w1"),
+                Word("w1", "Name"),
+                Value("v1", "w2"),
+                Word("w2", "Alice"),
+                // Its value is listed on the next page, which a page-by-page parse never joins to it.
+                Key("k2", "v3", "w3"),
+                Word("w3", "Total"),
+                Page("p2", 2),
+                Key("k3", "v2", "w4"),
+                Word("w4", "Name"),
+                Value("v2", "w5"),
+                Word("w5", "Bob"),
+                Value("v3", "w6"),
+                Word("w6", "12")));
+
+        assertEquals(List.of("Name", "Name (2)"), List.copyOf(fields.keySet()));
+        assertEquals("Bob", fields.get("Name (2)"));
+    }
+
+    @Test
+    void keyWithoutAValueBlockIsSkipped() {
+        Map<String, String> fields = FormExtractor.extract(List.of(
+                Page("page", 1),
+                Key("k1", "missing", "w1"),
+                Word("w1", "Name")));
+
+        assertEquals(Map.of(), fields);
+    }
+}
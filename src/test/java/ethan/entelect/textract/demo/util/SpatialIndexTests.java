@@ -0,0 +1,62 @@
+package ethan.entelect.textract.demo.util;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+
+import java.util.List;
+
+import static ethan.entelect.textract.demo.util.TestBlocks.Line;
+import static ethan.entelect.textract.demo.util.TestBlocks.Page;
+import static ethan.entelect.textract.demo.util.TestBlocks.Response;
+import static ethan.entelect.textract.demo.util.TestBlocks.Word;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SpatialIndexTests {
+    // A label with two values to its right, a heading with a value under it, and a footer far from both.
+    private static final Block NAME = Word("name", "Name", 0.1f, 0.1f, 0.1f, 0.03f);
+    private static final Block FIRST = Word("first", "Alice", 0.3f, 0.1f, 0.1f, 0.03f);
+    private static final Block LAST = Word("last", "Smith", 0.5f, 0.1f, 0.1f, 0.03f);
+    private static final Block HEADING = Word("heading", "Amount", 0.1f, 0.3f, 0.1f, 0.03f);
+    private static final Block AMOUNT = Word("amount", "42", 0.12f, 0.4f, 0.05f, 0.03f);
+    private static final Block FOOTER = Word("footer", "Page 1", 0.8f, 0.9f, 0.1f, 0.03f);
+    private static final Block LINE = Line("line", "Name Alice Smith", 0.1f, 0.1f, 0.5f, 0.03f, "name", "first", "last");
+
+    private final SpatialIndex index = new TextractDocument(List.of(Response(
+            Page("page", 1, "line", "heading", "amount", "footer"),
+            LINE, NAME, FIRST, LAST, HEADING, AMOUNT, FOOTER))).GetPage(0).GetSpatialIndex();
+
+    @Test
+    void indexesWordsAndLines() {
+        assertEquals(7, index.Size());
+    }
+
+    @Test
+    void nearestFindsClosestBoxOfTheType() {
+        assertEquals("first", index.Nearest(0.32f, 0.11f, BlockType.WORD).id());
+        assertEquals("footer", index.Nearest(0.95f, 0.95f, BlockType.WORD).id());
+        assertEquals("line", index.Nearest(0.32f, 0.11f, BlockType.LINE).id());
+    }
+
+    @Test
+    void rightOfFindsClosestValueOnTheSameRow() {
+        assertEquals("first", index.RightOf(NAME, BlockType.WORD).id());
+        assertEquals("last", index.RightOf(FIRST, BlockType.WORD).id());
+        assertNull(index.RightOf(LAST, BlockType.WORD));
+    }
+
+    @Test
+    void belowFindsClosestValueInTheSameColumn() {
+        assertEquals("heading", index.Below(NAME, BlockType.WORD).id());
+        assertEquals("amount", index.Below(HEADING, BlockType.WORD).id());
+        assertNull(index.Below(FIRST, BlockType.WORD));
+    }
+
+    @Test
+    void withinOnlyReturnsContainedBoxes() {
+        List<String> ids = index.Within(0, 0, 0.45f, 0.2f, BlockType.WORD).stream().map(Block::id).sorted().toList();
+
+        assertEquals(List.of("first", "name"), ids);
+    }
+}
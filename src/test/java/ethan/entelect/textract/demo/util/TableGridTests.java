@@ -0,0 +1,111 @@
+package ethan.entelect.textract.demo.util;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.textract.model.Block;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static ethan.entelect.textract.demo.util.TestBlocks.Cell;
+import static ethan.entelect.textract.demo.util.TestBlocks.MergedCell;
+import static ethan.entelect.textract.demo.util.TestBlocks.Page;
+import static ethan.entelect.textract.demo.util.TestBlocks.Response;
+import static ethan.entelect.textract.demo.util.TestBlocks.Table;
+import static ethan.entelect.textract.demo.util.TestBlocks.Word;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TableGridTests {
+
+    @Test
+    void spannedCellFillsEverySlotItCovers() {
+        TableGrid grid = Grid(
+                Table("table", 0.1f, 0.3f, List.of("c1", "c2", "c3", "c4", "c5"), List.of()),
+                Cell("c1", 1, 1, 1, 1, true, "w1"),
+                Cell("c2", 1, 2, 1, 1, true, "w2"),
+                Cell("c3", 2, 1, 2, 1, false, "w3"),
+                Cell("c4", 2, 2, 1, 1, false, "w4"),
+                Cell("c5", 3, 2, 1, 1, false, "w5"),
+                Word("w1", "Item"),
+                Word("w2", "Amount"),
+                Word("w3", "Fees"),
+                Word("w4", "$1,234.50"),
+                Word("w5", "(12)"));
+
+        assertEquals(3, grid.GetRowCount());
+        assertEquals(2, grid.GetColumnCount());
+        assertEquals(1, grid.GetHeaderRowCount());
+        assertEquals("Fees", grid.Get(1, 0));
+        assertEquals("Fees", grid.Get(2, 0));
+
+        List<TableGrid.Column> columns = grid.ToColumns();
+        assertEquals("Item", columns.get(0).GetName());
+        assertFalse(columns.get(0).IsNumeric());
+        assertEquals("Amount", columns.get(1).GetName());
+        assertArrayEquals(new double[]{1234.5, -12}, columns.get(1).GetNumbers());
+    }
+
+    @Test
+    void mergedCellRepeatsItsTextAcrossTheMerge() {
+        TableGrid grid = Grid(
+                Table("table", 0.1f, 0.2f, List.of("c1", "c2", "c3", "c4"), List.of("m1")),
+                Cell("c1", 1, 1, 1, 1, false, "w1"),
+                Cell("c2", 1, 2, 1, 1, false),
+                Cell("c3", 2, 1, 1, 1, false, "w2"),
+                Cell("c4", 2, 2, 1, 1, false, "w3"),
+                MergedCell("m1", 1, 1, 1, 2, "c1", "c2"),
+                Word("w1", "Total"),
+                Word("w2", "a"),
+                Word("w3", "b"));
+
+        assertEquals("Total", grid.Get(0, 0));
+        assertEquals("Total", grid.Get(0, 1));
+        assertEquals("b", grid.Get(1, 1));
+    }
+
+    @Test
+    void csvQuotesOnlyValuesThatNeedIt() throws IOException {
+        TableGrid grid = Grid(
+                Table("table", 0.1f, 0.2f, List.of("c1", "c2", "c3", "c4"), List.of()),
+                Cell("c1", 1, 1, 1, 1, false, "w1"),
+                Cell("c2", 1, 2, 1, 1, false, "w2"),
+                Cell("c3", 1, 3, 1, 1, false, "w3"),
+                Cell("c4", 1, 4, 1, 1, false, "w4"),
+                Word("w1", "plain"),
+                Word("w2", "a,b"),
+                Word("w3", "say \"hi\""),
+                Word("w4", "two\nlines"));
+
+        StringWriter csv = new StringWriter();
+        grid.WriteCsv(csv);
+
+        assertEquals("plain,\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\"\r\n", csv.toString());
+    }
+
+    @Test
+    void parseNumberReadsStatementAmounts() {
+        assertEquals(1234.5, TableGrid.ParseNumber("$1,234.50"));
+        assertEquals(-12, TableGrid.ParseNumber("(12)"));
+        assertEquals(-3.5, TableGrid.ParseNumber("-3.5"));
+        assertEquals(12, TableGrid.ParseNumber("12%"));
+        assertEquals(1000, TableGrid.ParseNumber("€ 1 000"));
+    }
+
+    @Test
+    void parseNumberRejectsText() {
+        assertTrue(Double.isNaN(TableGrid.ParseNumber("abc")));
+        assertTrue(Double.isNaN(TableGrid.ParseNumber("1.2.3")));
+        assertTrue(Double.isNaN(TableGrid.ParseNumber("")));
+        assertTrue(Double.isNaN(TableGrid.ParseNumber("12 USD")));
+    }
+
+    private static TableGrid Grid(Block... blocks) {
+        Block[] page = new Block[blocks.length + 1];
+        page[0] = Page("page", 1);
+        System.arraycopy(blocks, 0, page, 1, blocks.length);
+        return new TextractDocument(List.of(Response(page))).GetPage(0).GetTableGrids().get(0);
+    }
+}
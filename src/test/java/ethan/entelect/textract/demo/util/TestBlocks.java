@@ -0,0 +1,146 @@
+package ethan.entelect.textract.demo.util;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+import software.amazon.awssdk.services.textract.model.BoundingBox;
+import software.amazon.awssdk.services.textract.model.EntityType;
+import software.amazon.awssdk.services.textract.model.Geometry;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
+import software.amazon.awssdk.services.textract.model.Relationship;
+import software.amazon.awssdk.services.textract.model.RelationshipType;
+import software.amazon.awssdk.services.textract.model.SelectionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-built Textract blocks for tests. Boxes are given as left, top, width and height in page fractions.
+ */
+final class TestBlocks {
+    private TestBlocks() {
+    }
+
+    static GetDocumentAnalysisResponse Response(Block... blocks) {
+        return GetDocumentAnalysisResponse.builder().blocks(blocks).build();
+    }
+
+    static Block Page(String id, int page, String... children) {
+        return Block.builder()
+                .id(id)
+                .blockType(BlockType.PAGE)
+                .page(page)
+                .geometry(Box(0, 0, 1, 1))
+                .relationships(Related(RelationshipType.CHILD, children))
+                .build();
+    }
+
+    static Block Line(String id, String text, float left, float top, float width, float height, String... words) {
+        return Block.builder()
+                .id(id)
+                .blockType(BlockType.LINE)
+                .text(text)
+                .confidence(99f)
+                .geometry(Box(left, top, width, height))
+                .relationships(Related(RelationshipType.CHILD, words))
+                .build();
+    }
+
+    static Block Word(String id, String text, float left, float top, float width, float height) {
+        return Block.builder()
+                .id(id)
+                .blockType(BlockType.WORD)
+                .text(text)
+                .confidence(99f)
+                .geometry(Box(left, top, width, height))
+                .build();
+    }
+
+    static Block Word(String id, String text) {
+        return Word(id, text, 0, 0, 0.01f, 0.01f);
+    }
+
+    static Block Selection(String id, SelectionStatus status) {
+        return Block.builder()
+                .id(id)
+                .blockType(BlockType.SELECTION_ELEMENT)
+                .selectionStatus(status)
+                .confidence(99f)
+                .geometry(Box(0, 0, 0.01f, 0.01f))
+                .build();
+    }
+
+    static Block Key(String id, String valueId, String... words) {
+        List<Relationship> relationships = new ArrayList<>(Related(RelationshipType.CHILD, words));
+        relationships.add(Relationship.builder().type(RelationshipType.VALUE).ids(valueId).build());
+        return Block.builder()
+                .id(id)
+                .blockType(BlockType.KEY_VALUE_SET)
+                .entityTypes(EntityType.KEY)
+                .confidence(99f)
+                .geometry(Box(0, 0, 0.1f, 0.01f))
+                .relationships(relationships)
+                .build();
+    }
+
+    static Block Value(String id, String... words) {
+        return Block.builder()
+                .id(id)
+                .blockType(BlockType.KEY_VALUE_SET)
+                .entityTypes(EntityType.VALUE)
+                .confidence(99f)
+                .geometry(Box(0, 0, 0.1f, 0.01f))
+                .relationships(Related(RelationshipType.CHILD, words))
+                .build();
+    }
+
+    static Block Table(String id, float top, float bottom, List<String> cells, List<String> mergedCells) {
+        List<Relationship> relationships = new ArrayList<>(Related(RelationshipType.CHILD, cells.toArray(new String[0])));
+        relationships.addAll(Related(RelationshipType.MERGED_CELL, mergedCells.toArray(new String[0])));
+        return Block.builder()
+                .id(id)
+                .blockType(BlockType.TABLE)
+                .confidence(99f)
+                .geometry(Box(0.1f, top, 0.8f, bottom - top))
+                .relationships(relationships)
+                .build();
+    }
+
+    static Block Cell(String id, int row, int column, int rowSpan, int columnSpan, boolean header, String... words) {
+        return Block.builder()
+                .id(id)
+                .blockType(BlockType.CELL)
+                .rowIndex(row)
+                .columnIndex(column)
+                .rowSpan(rowSpan)
+                .columnSpan(columnSpan)
+                .entityTypes(header ? List.of(EntityType.COLUMN_HEADER) : List.of())
+                .confidence(99f)
+                .geometry(Box(0.1f + 0.2f * (column - 1), 0.1f + 0.05f * (row - 1), 0.2f * columnSpan, 0.05f * rowSpan))
+                .relationships(Related(RelationshipType.CHILD, words))
+                .build();
+    }
+
+    static Block MergedCell(String id, int row, int column, int rowSpan, int columnSpan, String... cells) {
+        return Block.builder()
+                .id(id)
+                .blockType(BlockType.MERGED_CELL)
+                .rowIndex(row)
+                .columnIndex(column)
+                .rowSpan(rowSpan)
+                .columnSpan(columnSpan)
+                .confidence(99f)
+                .relationships(Related(RelationshipType.CHILD, cells))
+                .build();
+    }
+
+    private static Geometry Box(float left, float top, float width, float height) {
+        return Geometry.builder()
+                .boundingBox(BoundingBox.builder().left(left).top(top).width(width).height(height).build())
+                .build();
+    }
+
+    private static List<Relationship> Related(RelationshipType type, String... ids) {
+        if (ids.length == 0) return List.of();
+        return List.of(Relationship.builder().type(type).ids(ids).build());
+    }
+}
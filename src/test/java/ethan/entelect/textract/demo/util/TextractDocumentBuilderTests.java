@@ -0,0 +1,65 @@
+package ethan.entelect.textract.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ethan.entelect.textract.demo.util.TestBlocks.Line;
+import static ethan.entelect.textract.demo.util.TestBlocks.Page;
+import static ethan.entelect.textract.demo.util.TestBlocks.Response;
+import static ethan.entelect.textract.demo.util.TestBlocks.Word;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TextractDocumentBuilderTests {
+
+    @Test
+    void emitsEachPageWhenTheNextOneStarts() {
+        List<Page> emitted = new ArrayList<>();
+        TextractDocumentBuilder builder = new TextractDocumentBuilder(emitted::add);
+
+        // Result pages are cut by block count, not by document page, so page 2 runs across both responses.
+        builder.Add(Response(
+                Page("p1", 1, "l1"),
+                Line("l1", "first", 0.1f, 0.1f, 0.2f, 0.03f, "w1"),
+                Word("w1", "first"),
+                Page("p2", 2, "l2"),
+                Line("l2", "second", 0.1f, 0.1f, 0.2f, 0.03f, "w2")));
+        assertEquals(List.of(1), PageNumbers(emitted));
+
+        builder.Add(Response(
+                Word("w2", "second"),
+                Page("p3", 3, "l3"),
+                Line("l3", "third", 0.1f, 0.1f, 0.2f, 0.03f, "w3"),
+                Word("w3", "third")));
+        assertEquals(List.of(1, 2), PageNumbers(emitted));
+
+        builder.Finish();
+        assertEquals(List.of(1, 2, 3), PageNumbers(emitted));
+        assertEquals(List.of("first", "second", "third"), emitted.stream().map(page -> page.GetText().strip()).toList());
+        assertEquals(3, builder.GetPagesEmitted());
+        assertEquals(9, builder.GetBlocksSeen());
+        assertEquals(0, builder.GetMissingReferences());
+    }
+
+    @Test
+    void countsReferencesToAnotherPage() {
+        List<Page> emitted = new ArrayList<>();
+        TextractDocumentBuilder builder = new TextractDocumentBuilder(emitted::add);
+
+        builder.Add(Response(
+                Page("p1", 1, "l1"),
+                Line("l1", "first second", 0.1f, 0.1f, 0.2f, 0.03f, "w1", "w2"),
+                Word("w1", "first"),
+                Page("p2", 2, "w2"),
+                Word("w2", "second")));
+        builder.Finish();
+
+        assertEquals(2, emitted.size());
+        assertEquals(1, builder.GetMissingReferences());
+    }
+
+    private static List<Integer> PageNumbers(List<Page> pages) {
+        return pages.stream().map(Page::GetPageNumber).toList();
+    }
+}